@@ -1,9 +1,11 @@
 package com.oss;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 @SpringBootApplication
+@EnableScheduling
 @RestController
 public class OssappApplication {
 	public static void main(String[] args) {
@@ -0,0 +1,152 @@
+package com.oss.config;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.util.List;
+/**
+ * Creates the indexes that ddl-auto=update does not create on SQLite
+ * (the @UniqueConstraint declared on entities never reaches the database)
+ * Runs once the schema is ready and before the web server accepts requests. Every statement is idempotent.
+ * Indexes that writes depend on, such as the conflict target of an upsert, are required: duplicate rows that
+ * older code could write are merged first, and if the merge or the index fails startup fails with it.
+ * Any other index that fails is logged and skipped, since queries only run slower without it.
+ */
+@Component
+public class DatabaseIndexInitializer {
+    private static final Logger log = LoggerFactory.getLogger(DatabaseIndexInitializer.class);
+    // Attendance: one row per user and day, keeping the newest row (the one that was read) and the
+    // overtime/deduction adjustments made on an older duplicate when the newest has none
+    private static final List<String> MERGE_DUPLICATES = List.of(
+            "UPDATE attendance SET " +
+            "overtime_hours = (SELECT d.overtime_hours FROM attendance d WHERE d.user_id = attendance.user_id " +
+            "AND d.work_date = attendance.work_date AND d.overtime_hours > 0 ORDER BY d.id DESC LIMIT 1), " +
+            "overtime_reason = (SELECT d.overtime_reason FROM attendance d WHERE d.user_id = attendance.user_id " +
+            "AND d.work_date = attendance.work_date AND d.overtime_hours > 0 ORDER BY d.id DESC LIMIT 1) " +
+            "WHERE COALESCE(overtime_hours, 0) = 0 " +
+            "AND id IN (SELECT MAX(id) FROM attendance GROUP BY user_id, work_date HAVING COUNT(*) > 1) " +
+            "AND EXISTS (SELECT 1 FROM attendance d WHERE d.user_id = attendance.user_id " +
+            "AND d.work_date = attendance.work_date AND d.overtime_hours > 0)",
+            "UPDATE attendance SET " +
+            "deduction_hours = (SELECT d.deduction_hours FROM attendance d WHERE d.user_id = attendance.user_id " +
+            "AND d.work_date = attendance.work_date AND d.deduction_hours > 0 ORDER BY d.id DESC LIMIT 1), " +
+            "deduction_reason = (SELECT d.deduction_reason FROM attendance d WHERE d.user_id = attendance.user_id " +
+            "AND d.work_date = attendance.work_date AND d.deduction_hours > 0 ORDER BY d.id DESC LIMIT 1) " +
+            "WHERE COALESCE(deduction_hours, 0) = 0 " +
+            "AND id IN (SELECT MAX(id) FROM attendance GROUP BY user_id, work_date HAVING COUNT(*) > 1) " +
+            "AND EXISTS (SELECT 1 FROM attendance d WHERE d.user_id = attendance.user_id " +
+            "AND d.work_date = attendance.work_date AND d.deduction_hours > 0)",
+            "DELETE FROM attendance WHERE EXISTS (SELECT 1 FROM attendance n WHERE n.user_id = attendance.user_id " +
+            "AND n.work_date = attendance.work_date AND n.id > attendance.id)",
+            // Credit ledger: rows of the same user (and month) each hold part of the deltas, so they are summed into the oldest
+            "UPDATE credit_balances SET " +
+            "total_amount = (SELECT SUM(d.total_amount) FROM credit_balances d WHERE d.user_id = credit_balances.user_id), " +
+            "paid_amount = (SELECT SUM(d.paid_amount) FROM credit_balances d WHERE d.user_id = credit_balances.user_id), " +
+            "unpaid_amount = (SELECT SUM(d.unpaid_amount) FROM credit_balances d WHERE d.user_id = credit_balances.user_id), " +
+            "credit_count = (SELECT SUM(d.credit_count) FROM credit_balances d WHERE d.user_id = credit_balances.user_id), " +
+            "unpaid_count = (SELECT SUM(d.unpaid_count) FROM credit_balances d WHERE d.user_id = credit_balances.user_id) " +
+            "WHERE id IN (SELECT MIN(id) FROM credit_balances GROUP BY user_id HAVING COUNT(*) > 1)",
+            "DELETE FROM credit_balances WHERE EXISTS (SELECT 1 FROM credit_balances o " +
+            "WHERE o.user_id = credit_balances.user_id AND o.id < credit_balances.id)",
+            "UPDATE credit_monthly_balances SET " +
+            "total_amount = (SELECT SUM(d.total_amount) FROM credit_monthly_balances d WHERE d.user_id = credit_monthly_balances.user_id " +
+            "AND d.year = credit_monthly_balances.year AND d.month = credit_monthly_balances.month), " +
+            "paid_amount = (SELECT SUM(d.paid_amount) FROM credit_monthly_balances d WHERE d.user_id = credit_monthly_balances.user_id " +
+            "AND d.year = credit_monthly_balances.year AND d.month = credit_monthly_balances.month), " +
+            "unpaid_amount = (SELECT SUM(d.unpaid_amount) FROM credit_monthly_balances d WHERE d.user_id = credit_monthly_balances.user_id " +
+            "AND d.year = credit_monthly_balances.year AND d.month = credit_monthly_balances.month), " +
+            "credit_count = (SELECT SUM(d.credit_count) FROM credit_monthly_balances d WHERE d.user_id = credit_monthly_balances.user_id " +
+            "AND d.year = credit_monthly_balances.year AND d.month = credit_monthly_balances.month) " +
+            "WHERE id IN (SELECT MIN(id) FROM credit_monthly_balances GROUP BY user_id, year, month HAVING COUNT(*) > 1)",
+            "DELETE FROM credit_monthly_balances WHERE EXISTS (SELECT 1 FROM credit_monthly_balances o " +
+            "WHERE o.user_id = credit_monthly_balances.user_id AND o.year = credit_monthly_balances.year " +
+            "AND o.month = credit_monthly_balances.month AND o.id < credit_monthly_balances.id)",
+            // Monthly rollup: rows of the same shop and month each hold part of the day deltas, so they are summed into the oldest
+            "UPDATE monthly_summaries SET " +
+            "total_revenue = (SELECT SUM(d.total_revenue) FROM monthly_summaries d WHERE d.shop_id = monthly_summaries.shop_id " +
+            "AND d.year = monthly_summaries.year AND d.month = monthly_summaries.month), " +
+            "total_expenses = (SELECT SUM(d.total_expenses) FROM monthly_summaries d WHERE d.shop_id = monthly_summaries.shop_id " +
+            "AND d.year = monthly_summaries.year AND d.month = monthly_summaries.month), " +
+            "total_credits = (SELECT SUM(d.total_credits) FROM monthly_summaries d WHERE d.shop_id = monthly_summaries.shop_id " +
+            "AND d.year = monthly_summaries.year AND d.month = monthly_summaries.month), " +
+            "net_sales = (SELECT SUM(d.net_sales) FROM monthly_summaries d WHERE d.shop_id = monthly_summaries.shop_id " +
+            "AND d.year = monthly_summaries.year AND d.month = monthly_summaries.month), " +
+            "profit = (SELECT SUM(d.profit) FROM monthly_summaries d WHERE d.shop_id = monthly_summaries.shop_id " +
+            "AND d.year = monthly_summaries.year AND d.month = monthly_summaries.month), " +
+            "expense_count = (SELECT SUM(d.expense_count) FROM monthly_summaries d WHERE d.shop_id = monthly_summaries.shop_id " +
+            "AND d.year = monthly_summaries.year AND d.month = monthly_summaries.month), " +
+            "credit_count = (SELECT SUM(d.credit_count) FROM monthly_summaries d WHERE d.shop_id = monthly_summaries.shop_id " +
+            "AND d.year = monthly_summaries.year AND d.month = monthly_summaries.month), " +
+            "manual_sale_count = (SELECT SUM(d.manual_sale_count) FROM monthly_summaries d WHERE d.shop_id = monthly_summaries.shop_id " +
+            "AND d.year = monthly_summaries.year AND d.month = monthly_summaries.month), " +
+            "day_count = (SELECT SUM(d.day_count) FROM monthly_summaries d WHERE d.shop_id = monthly_summaries.shop_id " +
+            "AND d.year = monthly_summaries.year AND d.month = monthly_summaries.month) " +
+            "WHERE id IN (SELECT MIN(id) FROM monthly_summaries GROUP BY shop_id, year, month HAVING COUNT(*) > 1)",
+            "DELETE FROM monthly_summaries WHERE EXISTS (SELECT 1 FROM monthly_summaries o " +
+            "WHERE o.shop_id = monthly_summaries.shop_id AND o.year = monthly_summaries.year " +
+            "AND o.month = monthly_summaries.month AND o.id < monthly_summaries.id)"
+    );
+    private static final List<String> REQUIRED_INDEXES = List.of(
+            // Target of the attendance upsert (AttendanceRepository.upsertStatus)
+            "CREATE UNIQUE INDEX IF NOT EXISTS ux_attendance_user_date ON attendance (user_id, work_date)",
+            // Targets of the credit ledger upserts (CreditBalanceRepository / CreditMonthlyBalanceRepository.applyDelta)
+            "CREATE UNIQUE INDEX IF NOT EXISTS ux_credit_balances_user ON credit_balances (user_id)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS ux_credit_monthly_balances_user_month ON credit_monthly_balances (user_id, year, month)",
+            // Target of the monthly rollup upsert (MonthlySummaryRepository.addDayDelta)
+            "CREATE UNIQUE INDEX IF NOT EXISTS ux_monthly_summaries_shop_month ON monthly_summaries (shop_id, year, month)"
+    );
+    private static final List<String> INDEXES = List.of(
+            "CREATE UNIQUE INDEX IF NOT EXISTS ux_daily_cash_shop_date ON daily_cash (shop_id, business_date)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS ux_daily_summaries_shop_date ON daily_summaries (shop_id, business_date)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS ux_payroll_periods_year_month ON payroll_periods (year, month)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS ux_payroll_snapshots_period_user ON payroll_snapshots (year, month, user_id)",
+            // Covers the unpaid-credit summary: seeks to is_paid = 0 and aggregates without touching the table
+            "CREATE INDEX IF NOT EXISTS ix_credits_paid_user ON credits (is_paid, user_id, amount)",
+            // Keyset pages of the credit listing, newest first, unfiltered and per filter column
+            "CREATE INDEX IF NOT EXISTS ix_credits_created ON credits (created_at, id)",
+            "CREATE INDEX IF NOT EXISTS ix_credits_user_created ON credits (user_id, created_at, id)",
+            "CREATE INDEX IF NOT EXISTS ix_credits_paid_created ON credits (is_paid, created_at, id)",
+            "CREATE INDEX IF NOT EXISTS ix_credits_shop_created ON credits (shop_id, created_at, id)",
+            "CREATE INDEX IF NOT EXISTS ix_credits_department_created ON credits (department, created_at, id)",
+            "CREATE INDEX IF NOT EXISTS ix_credits_transaction_date ON credits (transaction_date)",
+            // Keyset pages of the attendance listing, newest work date first, unfiltered and per filter column
+            "CREATE INDEX IF NOT EXISTS ix_attendance_date ON attendance (work_date, id)",
+            "CREATE INDEX IF NOT EXISTS ix_attendance_user_date ON attendance (user_id, work_date, id)",
+            "CREATE INDEX IF NOT EXISTS ix_attendance_status_date ON attendance (status, work_date, id)"
+    );
+    private final JdbcTemplate jdbcTemplate;
+    // Depending on the EntityManagerFactory makes this run after ddl-auto has created the entity tables
+    public DatabaseIndexInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    @PostConstruct
+    public void createIndexes() {
+        for (String sql : MERGE_DUPLICATES) {
+            try {
+                int rows = jdbcTemplate.update(sql);
+                if (rows > 0) {
+                    log.warn("Merged duplicate rows: {} rows changed by {}", rows, sql);
+                }
+            } catch (DataAccessException e) {
+                throw new IllegalStateException("Could not merge duplicate rows: " + sql, e);
+            }
+        }
+        for (String sql : REQUIRED_INDEXES) {
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (DataAccessException e) {
+                throw new IllegalStateException("Could not create required index: " + sql, e);
+            }
+        }
+        for (String sql : INDEXES) {
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (DataAccessException e) {
+                log.error("Could not create index, skipping: {} ({})", sql, e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.oss.config;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.util.List;
+/**
+ * Creates the id_sequences table used by PooledIdGenerator and keeps each sequence ahead of its table
+ * Rows written before the switch from IDENTITY carry rowid-assigned ids, so every sequence is moved
+ * past MAX(id) once the schema is ready and before any request is served.
+ */
+@Component
+public class IdSequenceInitializer {
+    private static final List<String> TABLES = List.of(
+            "cash_transactions", "audit_logs", "credits", "attendance", "foodhut_sales", "daily_summaries");
+    private final JdbcTemplate jdbcTemplate;
+    // Depending on the EntityManagerFactory makes this run after ddl-auto has created the entity tables
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    @PostConstruct
+    public void alignSequences() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS id_sequences (sequence_name VARCHAR(255) NOT NULL PRIMARY KEY, next_val BIGINT NOT NULL)");
+        for (String table : TABLES) {
+            jdbcTemplate.update("INSERT OR IGNORE INTO id_sequences (sequence_name, next_val) VALUES (?, 1)", table);
+            jdbcTemplate.update("UPDATE id_sequences SET next_val = (SELECT COALESCE(MAX(id), 0) + 1 FROM " + table + ") " +
+                    "WHERE sequence_name = ? AND next_val <= (SELECT COALESCE(MAX(id), 0) FROM " + table + ")", table);
+        }
+    }
+}
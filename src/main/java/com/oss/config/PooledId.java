@@ -0,0 +1,19 @@
+package com.oss.config;
+import org.hibernate.annotations.IdGeneratorType;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+/**
+ * Id assigned by PooledIdGenerator from a row of the id_sequences table
+ */
+@IdGeneratorType(PooledIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface PooledId {
+    /**
+     * Row of id_sequences to draw from, by convention the entity's table name
+     */
+    String sequence();
+    int blockSize() default 50;
+}
@@ -0,0 +1,69 @@
+package com.oss.config;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerationException;
+import org.hibernate.id.IdentifierGenerator;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+/**
+ * Hands out ids in blocks reserved from the id_sequences table, so Hibernate can batch inserts
+ * (it cannot with IDENTITY, where every insert has to return its key)
+ * The block is reserved with one UPDATE ... RETURNING on the session's own connection. Hibernate's
+ * TableGenerator does this on a second connection instead, and the commit made there invalidates the
+ * SQLite read snapshot of the running transaction, which then fails with SQLITE_BUSY_SNAPSHOT on its
+ * first write. A block lives only until the session's transaction completes, so ids reserved by a
+ * rolled-back transaction are never handed out again.
+ * Ids are therefore not gap-free. A transaction's first reservation takes a single id and each further one
+ * doubles, up to the block size, so a single-row write costs one small UPDATE and leaves no gap, while a bulk
+ * insert reaches full blocks after a handful of reservations. What a transaction reserves but does not use,
+ * at most blockSize - 1 ids, is skipped for good.
+ */
+public class PooledIdGenerator implements IdentifierGenerator {
+    private static final String RESERVE_SQL =
+            "UPDATE id_sequences SET next_val = next_val + ? WHERE sequence_name = ? RETURNING next_val - ?";
+    private final String sequence;
+    private final int blockSize;
+    // Open block per session: {next id, end (exclusive), size of the last reservation}
+    private final Map<SharedSessionContractImplementor, long[]> blocks = Collections.synchronizedMap(new WeakHashMap<>());
+    public PooledIdGenerator(PooledId config) {
+        this.sequence = config.sequence();
+        this.blockSize = config.blockSize();
+    }
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        long[] block = blocks.get(session);
+        if (block == null) {
+            session.asEventSource().getActionQueue().registerProcess((success, s) -> blocks.remove(s));
+        }
+        if (block == null || block[0] >= block[1]) {
+            int size = block == null ? 1 : (int) Math.min(block[2] * 2, blockSize);
+            long start = reserve(session, size);
+            block = new long[]{start, start + size, size};
+            blocks.put(session, block);
+        }
+        return block[0]++;
+    }
+    private long reserve(SharedSessionContractImplementor session, int size) {
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(RESERVE_SQL);
+        try {
+            statement.setInt(1, size);
+            statement.setString(2, sequence);
+            statement.setInt(3, size);
+            ResultSet rs = jdbc.getResultSetReturn().extract(statement, RESERVE_SQL);
+            if (!rs.next()) {
+                throw new IdentifierGenerationException("No id_sequences row for " + sequence);
+            }
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "Could not reserve ids for " + sequence, RESERVE_SQL);
+        } finally {
+            jdbc.getLogicalConnection().getResourceRegistry().release(statement);
+            jdbc.afterStatementExecution();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.oss.config;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+/**
+ * Writes a StreamingResponseBody returned inside a ResponseEntity<?>
+ * Spring MVC only streams a body asynchronously when the handler declares ResponseEntity<StreamingResponseBody>;
+ * the report handlers return either JSON or an export from the same method, so the export is written here,
+ * on the request thread, with the content type and headers of the ResponseEntity
+ */
+@Component
+public class StreamingResponseBodyConverter extends AbstractHttpMessageConverter<StreamingResponseBody> {
+    public StreamingResponseBodyConverter() {
+        super(MediaType.ALL);
+    }
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StreamingResponseBody.class.isAssignableFrom(clazz);
+    }
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+    @Override
+    protected StreamingResponseBody readInternal(Class<? extends StreamingResponseBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("A streaming body cannot be read", inputMessage);
+    }
+    @Override
+    protected void writeInternal(StreamingResponseBody body, HttpOutputMessage outputMessage) throws IOException {
+        body.writeTo(outputMessage.getBody());
+    }
+}
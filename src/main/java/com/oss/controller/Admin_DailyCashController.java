@@ -1,8 +1,10 @@
 package com.oss.controller;
+import com.oss.model.SummaryBackfillJob;
 import com.oss.model.User;
 import com.oss.repository.UserRepository;
 import com.oss.service.DailyCashService;
 import com.oss.service.DailySummaryService;
+import com.oss.service.SummaryBackfillService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -17,12 +19,15 @@ import java.util.Map;
 public class Admin_DailyCashController {
     private final DailyCashService dailyCashService;
     private final DailySummaryService dailySummaryService;
+    private final SummaryBackfillService summaryBackfillService;
     private final UserRepository userRepository;
     public Admin_DailyCashController(DailyCashService dailyCashService,
                                     DailySummaryService dailySummaryService,
+                                    SummaryBackfillService summaryBackfillService,
                                     UserRepository userRepository) {
         this.dailyCashService = dailyCashService;
         this.dailySummaryService = dailySummaryService;
+        this.summaryBackfillService = summaryBackfillService;
         this.userRepository = userRepository;
     }
     /**
@@ -99,16 +104,18 @@ public class Admin_DailyCashController {
      * POST /api/admin/daily-cash/recalculate-all
      * Recalculate ALL daily summaries (SUPERADMIN only)
      * Use this after fixing calculation bugs
+     * Starts a background backfill job over the whole history; progress is at
+     * /api/admin/migration/backfill-jobs/{jobId}
      */
     @PostMapping("/recalculate-all")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
     public ResponseEntity<?> recalculateAllSummaries() {
         try {
-            int count = dailyCashService.recalculateAllSummaries();
-            return ResponseEntity.ok(Map.of(
-                "message", "All daily summaries recalculated successfully",
-                "count", count
-            ));
+            SummaryBackfillJob job = summaryBackfillService.startFullHistory(null);
+            if (job == null) {
+                return ResponseEntity.ok(Map.of("message", "No days to recalculate"));
+            }
+            return ResponseEntity.accepted().body(SummaryBackfillService.describe(job));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Internal server error: " + e.getMessage()));
         }
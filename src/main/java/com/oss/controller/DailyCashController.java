@@ -1,4 +1,5 @@
 package com.oss.controller;
+import com.oss.dto.CashTransactionBatchRequest;
 import com.oss.dto.DailyCashSummaryDTO;
 import com.oss.dto.LatestBalanceDTO;
 import com.oss.dto.ShopSummaryDTO;
@@ -34,19 +35,33 @@ public class DailyCashController {
     /**
      * GET /api/daily-cash/{shopId}/{date}
      * Daily screen: Get opening, expenses, sales, credits, totals
-     * âœ… FIXED: Now properly logs the requested date for debugging
+     * Read-only: a day that was never opened is returned without dailyCashId and is not created
      */
     @GetMapping("/daily-cash/{shopId}/{date}")
     public ResponseEntity<DailyCashSummaryDTO> getDailyCashSummary(
             @PathVariable Long shopId,
             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) String date) {
         LocalDate businessDate = LocalDate.parse(date);
-        DailyCashSummaryDTO summary = dailyCashService.getDailyCashSummary(shopId, businessDate);
+        DailyCashSummaryDTO summary = dailyCashService.getDailyCashSummaryReadOnly(shopId, businessDate);
         return ResponseEntity.ok(summary);
     }
+    /**
+     * GET /api/daily-cash/{shopId}/range?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD
+     * Month view: read-only daily screens for every date in the range (at most 366 days)
+     */
+    @GetMapping("/daily-cash/{shopId}/range")
+    public ResponseEntity<?> getDailyCashRange(
+            @PathVariable Long shopId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        if (endDate.isBefore(startDate) || startDate.plusDays(365).isBefore(endDate)) {
+            return ResponseEntity.badRequest().body("endDate must be on or after startDate and within 366 days");
+        }
+        return ResponseEntity.ok(dailyCashService.getDailyCashSummaries(shopId, startDate, endDate));
+    }
     /**
      * GET /api/daily-cash/{shopId}
-     * Get today's daily cash for a shop
+     * Get today's daily cash for a shop, opening the day if it does not exist yet
      */
     @GetMapping("/daily-cash/{shopId}")
     public ResponseEntity<DailyCashSummaryDTO> getTodayDailyCash(@PathVariable Long shopId) {
@@ -116,6 +131,30 @@ public class DailyCashController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+    /**
+     * POST /api/daily-cash/{id}/transactions/batch
+     * Add many expenses and manual sales in one request
+     * Body: {"expenses": [{"amount", "expenseTypeId", "description"}], "sales": [{"amount", "description"}]}
+     */
+    @PostMapping("/daily-cash/{id}/transactions/batch")
+    public ResponseEntity<?> addTransactionsBatch(
+            @PathVariable Long id,
+            @RequestBody CashTransactionBatchRequest request,
+            Principal principal) {
+        Optional<User> optUser = userRepository.findByEmail(principal.getName());
+        if (optUser.isEmpty()) {
+            return ResponseEntity.badRequest().body("Invalid user");
+        }
+        try {
+            List<Long> ids = dailyCashService.addTransactionsBatch(id, request, optUser.get());
+            return ResponseEntity.ok(Map.of(
+                "message", "Transactions added successfully",
+                "transactionIds", ids
+            ));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
     /**
      * POST /api/daily-cash/{id}/sales
      * Add manual sale to daily cash
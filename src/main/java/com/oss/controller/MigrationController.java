@@ -1,6 +1,10 @@
 package com.oss.controller;
+import com.oss.model.SummaryBackfillJob;
+import com.oss.service.CreditLedgerService;
 import com.oss.service.DailySummaryService;
 import com.oss.service.DataMigrationService;
+import com.oss.service.MonthlySummaryService;
+import com.oss.service.SummaryBackfillService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -18,10 +22,19 @@ import java.util.Map;
 public class MigrationController {
     private final DataMigrationService migrationService;
     private final DailySummaryService dailySummaryService;
+    private final SummaryBackfillService summaryBackfillService;
+    private final MonthlySummaryService monthlySummaryService;
+    private final CreditLedgerService creditLedgerService;
     public MigrationController(DataMigrationService migrationService,
-                              DailySummaryService dailySummaryService) {
+                              DailySummaryService dailySummaryService,
+                              SummaryBackfillService summaryBackfillService,
+                              MonthlySummaryService monthlySummaryService,
+                              CreditLedgerService creditLedgerService) {
         this.migrationService = migrationService;
         this.dailySummaryService = dailySummaryService;
+        this.summaryBackfillService = summaryBackfillService;
+        this.monthlySummaryService = monthlySummaryService;
+        this.creditLedgerService = creditLedgerService;
     }
     /**
      * POST /api/admin/migration/init-shops
@@ -87,52 +100,158 @@ public class MigrationController {
     /**
      * POST /api/admin/migration/backfill-summaries
      * Backfill daily summaries for existing data (SUPERADMIN only)
-     * Example: POST /api/admin/migration/backfill-summaries?startDate=2026-01-01&endDate=2026-01-31
+     * Example: POST /api/admin/migration/backfill-summaries?startDate=2026-01-01&endDate=2026-01-31&chunkDays=31
      *
-     * This creates pre-calculated daily summaries for performance optimization.
-     * After running this, Business Overview and Staff Performance will be 10-100x faster!
+     * Runs as a background job committing one chunk of days at a time; poll backfill-jobs/{jobId} for progress.
+     * If a backfill is already running, that job is returned instead of starting another.
      */
     @PostMapping("/backfill-summaries")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
     public ResponseEntity<?> backfillDailySummaries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Integer chunkDays) {
+        try {
+            SummaryBackfillJob job = summaryBackfillService.start(startDate, endDate, chunkDays);
+            return ResponseEntity.accepted().body(SummaryBackfillService.describe(job));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    /**
+     * POST /api/admin/migration/backfill-summaries-all
+     * Backfill ALL daily summaries from earliest to latest date (SUPERADMIN only)
+     * Runs as a background job like backfill-summaries
+     */
+    @PostMapping("/backfill-summaries-all")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> backfillAllDailySummaries(@RequestParam(required = false) Integer chunkDays) {
+        try {
+            SummaryBackfillJob job = summaryBackfillService.startFullHistory(chunkDays);
+            if (job == null) {
+                return ResponseEntity.ok(Map.of("message", "No days to backfill"));
+            }
+            return ResponseEntity.accepted().body(SummaryBackfillService.describe(job));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    /**
+     * POST /api/admin/migration/recompute-summaries
+     * Recompute daily summaries of a date range in one request (SUPERADMIN only)
+     * Example: POST /api/admin/migration/recompute-summaries?startDate=2026-01-01&endDate=2026-12-31
+     *
+     * Set-based: totals come from a few grouped queries over the whole range, so a year takes seconds.
+     * Use backfill-summaries for the full history or when progress tracking is wanted.
+     */
+    @PostMapping("/recompute-summaries")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> recomputeDailySummaries(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Start date must not be after end date"));
+        }
         try {
-            dailySummaryService.recalculateSummaries(startDate, endDate);
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "Daily summaries backfilled successfully");
+            int count = dailySummaryService.recalculateSummaries(startDate, endDate);
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Daily summaries recomputed successfully");
             response.put("startDate", startDate.toString());
             response.put("endDate", endDate.toString());
-            response.put("note", "Performance optimization enabled - reports will now be 10-100x faster!");
+            response.put("count", count);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error: " + e.getMessage());
         }
     }
     /**
-     * POST /api/admin/migration/backfill-summaries-all
-     * Backfill ALL daily summaries from earliest to latest date (SUPERADMIN only)
-     * WARNING: This may take time for large datasets
+     * GET /api/admin/migration/backfill-jobs/latest
+     * Progress of the most recent summary backfill job (SUPERADMIN only)
+     */
+    @GetMapping("/backfill-jobs/latest")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> getLatestBackfillJob() {
+        SummaryBackfillJob job = summaryBackfillService.getLatestJob();
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(SummaryBackfillService.describe(job));
+    }
+    /**
+     * GET /api/admin/migration/backfill-jobs/{jobId}
+     * Progress of a summary backfill job (SUPERADMIN only)
+     */
+    @GetMapping("/backfill-jobs/{jobId}")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> getBackfillJob(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.ok(SummaryBackfillService.describe(summaryBackfillService.getJob(jobId)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    /**
+     * POST /api/admin/migration/backfill-jobs/{jobId}/resume
+     * Continue a failed summary backfill job from the chunk that failed (SUPERADMIN only)
+     */
+    @PostMapping("/backfill-jobs/{jobId}/resume")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> resumeBackfillJob(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.accepted().body(SummaryBackfillService.describe(summaryBackfillService.resume(jobId)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    /**
+     * POST /api/admin/migration/rebuild-monthly-summaries
+     * Rebuild the monthly rollup table from existing daily summaries (SUPERADMIN only)
+     * Run once after deploying, or after a daily summary backfill
+     */
+    @PostMapping("/rebuild-monthly-summaries")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> rebuildMonthlySummaries() {
+        try {
+            int count = monthlySummaryService.rebuildAll();
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Monthly summaries rebuilt successfully");
+            response.put("count", count);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Error: " + e.getMessage());
+        }
+    }
+    /**
+     * POST /api/admin/migration/check-credit-ledger
+     * Compare the per-user credit balances with the credits table (SUPERADMIN only)
+     * Example: POST /api/admin/migration/check-credit-ledger?repair=true
      *
-     * This automatically calculates summaries for the last 3 months.
-     * Adjust the date range in code if you need different period.
+     * The same check runs nightly with repair enabled; without repair this only reports differences.
      */
-    @PostMapping("/backfill-summaries-all")
+    @PostMapping("/check-credit-ledger")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
-    public ResponseEntity<?> backfillAllDailySummaries() {
+    public ResponseEntity<?> checkCreditLedger(@RequestParam(defaultValue = "false") boolean repair) {
         try {
-            // Calculate from earliest to latest (approximately 3 months ago to today)
-            LocalDate endDate = LocalDate.now();
-            LocalDate startDate = endDate.minusMonths(3);
-            dailySummaryService.recalculateSummaries(startDate, endDate);
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "All daily summaries backfilled successfully");
-            response.put("startDate", startDate.toString());
-            response.put("endDate", endDate.toString());
-            response.put("note", "Performance optimization enabled - reports will now be 10-100x faster!");
+            return ResponseEntity.ok(creditLedgerService.checkConsistency(repair));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Error: " + e.getMessage());
+        }
+    }
+    /**
+     * POST /api/admin/migration/rebuild-credit-ledger
+     * Rebuild the per-user credit balances from the credits table (SUPERADMIN only)
+     */
+    @PostMapping("/rebuild-credit-ledger")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> rebuildCreditLedger() {
+        try {
+            int count = creditLedgerService.rebuildAll();
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Credit ledger rebuilt successfully");
+            response.put("count", count);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,25 @@
 package com.oss.controller;
+import com.oss.dto.CreditFilter;
+import com.oss.dto.CreditPageDTO;
 import com.oss.dto.OSD_CreditDTO;
 import com.oss.model.Credit;
+import com.oss.model.CreditBalance;
 import com.oss.model.User;
 import com.oss.repository.CreditRepository;
 import com.oss.repository.UserRepository;
+import com.oss.service.CreditLedgerService;
 import com.oss.service.CreditService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import java.security.Principal;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +34,8 @@ public class OSD_CreditController {
     private UserRepository userRepository;
     @Autowired
     private CreditRepository creditRepository;
+    @Autowired
+    private CreditLedgerService creditLedgerService;
     @GetMapping
     public List<OSD_CreditDTO> getAllCredits() {
         return creditService.getAllCredits();
@@ -40,15 +50,82 @@ public class OSD_CreditController {
         List<OSD_CreditDTO> unpaidCredits = creditService.getCreditsByPaidStatus(false);
         return ResponseEntity.ok(unpaidCredits);
     }
+    /**
+     * GET /api/credits/filter
+     * All credits matching the given filters, newest first; every filter is optional
+     * Example: GET /api/credits/filter?isPaid=false&userId=3&startDate=2026-01-01&endDate=2026-01-31
+     */
     @GetMapping("/filter")
-    public List<OSD_CreditDTO> filterCredits(@RequestParam(required = false) Boolean isPaid) {
-        return creditService.getCreditsByPaidStatus(isPaid);
+    public List<OSD_CreditDTO> filterCredits(@RequestParam(required = false) Boolean isPaid,
+                                             @RequestParam(required = false) Long userId,
+                                             @RequestParam(required = false) Long shopId,
+                                             @RequestParam(required = false) String department,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return creditService.getCredits(filter(isPaid, userId, shopId, department, startDate, endDate));
+    }
+    /**
+     * GET /api/credits/page
+     * One page of credits matching the given filters, newest first (same filters as /filter)
+     * Example: GET /api/credits/page?isPaid=false&limit=50, then ...&cursor={nextCursor} for the next page
+     */
+    @GetMapping("/page")
+    public CreditPageDTO getCreditPage(@RequestParam(required = false) Boolean isPaid,
+                                       @RequestParam(required = false) Long userId,
+                                       @RequestParam(required = false) Long shopId,
+                                       @RequestParam(required = false) String department,
+                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                       @RequestParam(required = false) String cursor,
+                                       @RequestParam(required = false) Integer limit) {
+        return creditService.getCreditPage(filter(isPaid, userId, shopId, department, startDate, endDate), cursor, limit);
+    }
+    private static CreditFilter filter(Boolean isPaid, Long userId, Long shopId, String department,
+                                       LocalDate startDate, LocalDate endDate) {
+        return CreditFilter.builder()
+                .isPaid(isPaid)
+                .userId(userId)
+                .shopId(shopId)
+                .department(department)
+                .startDate(startDate)
+                .endDate(endDate)
+                .build();
     }
     @PostMapping
     public ResponseEntity<?> addCredit(@RequestBody Map<String, Object> body) {
         creditService.saveCredit(body);
         return ResponseEntity.ok("Credit added successfully");
     }
+    /**
+     * POST /api/credits/settle
+     * Mark many credits paid in one request (ADMIN / SUPERADMIN)
+     * Body: {"creditIds": [1, 2, 3]} or {"userId": 5, "startDate": "2026-01-01", "endDate": "2026-01-31"};
+     * leave out userId to settle every staff member's credits in the range
+     * 409 when other requests paid or added matching credits meanwhile; nothing is settled and the request can be retried
+     */
+    @PostMapping("/settle")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'SUPERADMIN')")
+    public ResponseEntity<?> settleCredits(@RequestBody Map<String, Object> body, Principal principal) {
+        try {
+            User user = userRepository.findByEmail(principal.getName())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+            List<Long> creditIds = null;
+            if (body.get("creditIds") instanceof List<?> ids) {
+                creditIds = ids.stream().map(id -> Long.valueOf(id.toString())).collect(Collectors.toList());
+            }
+            Long userId = body.get("userId") != null ? Long.valueOf(body.get("userId").toString()) : null;
+            LocalDate startDate = body.get("startDate") != null ? LocalDate.parse(body.get("startDate").toString()) : null;
+            LocalDate endDate = body.get("endDate") != null ? LocalDate.parse(body.get("endDate").toString()) : null;
+            return ResponseEntity.ok(creditService.settleCredits(creditIds, userId, startDate, endDate, user));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Invalid request: " + e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Error settling credits: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body("Internal server error: " + e.getMessage());
+        }
+    }
     @PatchMapping("/{id}")
     public ResponseEntity<?> updateStatus(@PathVariable Long id, @RequestBody Map<String, Object> body) {
         try {
@@ -149,14 +226,12 @@ public class OSD_CreditController {
             User user = userRepository.findByEmail(principal.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            Double totalCredits = creditRepository.sumCreditsByUserId(user.getId());
-            Double unpaidCredits = creditRepository.sumUnpaidCreditsByUserId(user.getId());
-            Double paidCredits = creditRepository.sumPaidCreditsByUserId(user.getId());
+            CreditBalance balance = creditLedgerService.getBalance(user.getId());
 
             Map<String, Object> summary = new HashMap<>();
-            summary.put("totalCredits", totalCredits != null ? totalCredits : 0.0);
-            summary.put("unpaidCredits", unpaidCredits != null ? unpaidCredits : 0.0);
-            summary.put("paidCredits", paidCredits != null ? paidCredits : 0.0);
+            summary.put("totalCredits", balance.getTotalAmount());
+            summary.put("unpaidCredits", balance.getUnpaidAmount());
+            summary.put("paidCredits", balance.getPaidAmount());
             summary.put("userId", user.getId());
             summary.put("userName", user.getName());
 
@@ -177,12 +252,12 @@ public class OSD_CreditController {
             User user = userRepository.findByEmail(principal.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            Double totalCredits = creditRepository.sumCreditsByUserId(user.getId());
+            CreditBalance balance = creditLedgerService.getBalance(user.getId());
 
             Map<String, Object> resp = new HashMap<>();
             resp.put("userId", user.getId());
             resp.put("userName", user.getName());
-            resp.put("totalCredits", totalCredits != null ? totalCredits : 0.0);
+            resp.put("totalCredits", balance.getTotalAmount());
 
             return ResponseEntity.ok(resp);
         } catch (Exception e) {
@@ -223,14 +298,12 @@ public class OSD_CreditController {
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            Double totalCredits = creditRepository.sumCreditsByUserId(userId);
-            Double unpaidCredits = creditRepository.sumUnpaidCreditsByUserId(userId);
-            Double paidCredits = creditRepository.sumPaidCreditsByUserId(userId);
+            CreditBalance balance = creditLedgerService.getBalance(userId);
 
             Map<String, Object> summary = new HashMap<>();
-            summary.put("totalCredits", totalCredits != null ? totalCredits : 0.0);
-            summary.put("unpaidCredits", unpaidCredits != null ? unpaidCredits : 0.0);
-            summary.put("paidCredits", paidCredits != null ? paidCredits : 0.0);
+            summary.put("totalCredits", balance.getTotalAmount());
+            summary.put("unpaidCredits", balance.getUnpaidAmount());
+            summary.put("paidCredits", balance.getPaidAmount());
             summary.put("userId", user.getId());
             summary.put("userName", user.getName());
             summary.put("userEmail", user.getEmail());
@@ -253,12 +326,12 @@ public class OSD_CreditController {
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            Double totalCredits = creditRepository.sumCreditsByUserId(userId);
+            CreditBalance balance = creditLedgerService.getBalance(userId);
 
             Map<String, Object> resp = new HashMap<>();
             resp.put("userId", user.getId());
             resp.put("userName", user.getName());
-            resp.put("totalCredits", totalCredits != null ? totalCredits : 0.0);
+            resp.put("totalCredits", balance.getTotalAmount());
 
             return ResponseEntity.ok(resp);
         } catch (Exception e) {
@@ -1,13 +1,19 @@
 package com.oss.controller;
 import com.oss.dto.AttendanceAdjustmentRequest;
+import com.oss.dto.AttendanceFilter;
+import com.oss.dto.AttendancePageDTO;
 import com.oss.model.Attendance;
 import com.oss.model.AttendanceHistory;
+import com.oss.model.AttendanceStatus;
 import com.oss.model.Role;
 import com.oss.model.User;
 import com.oss.repository.AttendanceRepository;
 import com.oss.repository.UserRepository;
+import com.oss.service.AttendanceMatrixService;
 import com.oss.service.AttendanceService;
+import com.oss.service.DailySummaryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -25,6 +31,8 @@ public class OSS_AttendanceController {
     private final AttendanceService service;
     private final AttendanceRepository attendanceRepository;
     private final UserRepository userRepository;
+    private final DailySummaryService dailySummaryService;
+    private final AttendanceMatrixService attendanceMatrixService;
     @GetMapping("/today")
     public ResponseEntity<?> today() {
         Attendance attendance = service.getToday();
@@ -125,6 +133,48 @@ public class OSS_AttendanceController {
     public List<Map<String, Object>> all() {
         return service.allAttendance();
     }
+    /**
+     * GET /api/attendance/page
+     * One page of all staff attendance, newest work date first (ADMIN / SUPERADMIN)
+     * Example: GET /api/attendance/page?userId=5&startDate=2026-01-01&status=WORKING&limit=50,
+     * then ...&cursor={nextCursor} for the next page
+     */
+    @GetMapping("/page")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'SUPERADMIN')")
+    public AttendancePageDTO page(@RequestParam(required = false) Long userId,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                  @RequestParam(required = false) AttendanceStatus status,
+                                  @RequestParam(required = false) String cursor,
+                                  @RequestParam(required = false) Integer limit) {
+        AttendanceFilter filter = AttendanceFilter.builder()
+                .userId(userId)
+                .startDate(startDate)
+                .endDate(endDate)
+                .status(status)
+                .build();
+        return service.getAttendancePage(filter, cursor, limit);
+    }
+    /**
+     * GET /api/attendance/matrix
+     * Staff x days roster grid with per-staff totals (ADMIN / SUPERADMIN), at most 366 days
+     * Example: GET /api/attendance/matrix?startDate=2026-07-01&endDate=2026-09-30;
+     * add format=json for one code per day instead of base64 bitsets
+     */
+    @GetMapping("/matrix")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'SUPERADMIN')")
+    public ResponseEntity<?> matrix(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                    @RequestParam(defaultValue = "dense") String format) {
+        if (!format.equalsIgnoreCase("dense") && !format.equalsIgnoreCase("json")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "format must be dense or json"));
+        }
+        try {
+            return ResponseEntity.ok(attendanceMatrixService.getMatrix(startDate, endDate, format.equalsIgnoreCase("dense")));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getReason()));
+        }
+    }
     /**
      * Update attendance overtime/deduction adjustments
      * Admin/SuperAdmin only
@@ -203,6 +253,7 @@ public class OSS_AttendanceController {
             attendance.setStatus(status);
             attendance.setIsWorking(status != com.oss.model.AttendanceStatus.NOT_WORKING);
             Attendance saved = attendanceRepository.save(attendance);
+            dailySummaryService.evictLive(workDate);
             return ResponseEntity.ok(Map.of("message", "Status updated successfully"));
         } catch (ResponseStatusException e) {
             throw e;
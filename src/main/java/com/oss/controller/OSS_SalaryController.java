@@ -1,10 +1,19 @@
 package com.oss.controller;
+import com.oss.dto.PayrollRunDTO;
+import com.oss.model.PayrollPeriod;
 import com.oss.model.StaffSalaryReport;
+import com.oss.model.User;
+import com.oss.repository.UserRepository;
 import com.oss.service.AttendanceService;
+import com.oss.service.PayrollService;
+import com.oss.service.ReportExportService;
 import com.oss.service.SalaryReportService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import java.security.Principal;
 import java.util.List;
 import java.util.Map;
 @RestController
@@ -13,6 +22,9 @@ import java.util.Map;
 public class OSS_SalaryController {
     private final AttendanceService attendanceService;
     private final SalaryReportService salaryReportService;
+    private final PayrollService payrollService;
+    private final ReportExportService reportExportService;
+    private final UserRepository userRepository;
     // ======================
     // TODAY SALARY (ME)
     // ======================
@@ -32,6 +44,57 @@ public class OSS_SalaryController {
         return salaryReportService.getMonthlyStaffSalary(year, month);
     }
     // ======================
+    // ADMIN: PAYROLL RUN (ALL STAFF, FULL BREAKDOWN)
+    // ======================
+    // Add format=csv|ndjson to stream it as a file; detail=true gives one row per staff member and day
+    // The file is written from the computed run, so it holds no connection and is not limited like report exports
+    @GetMapping("/admin/payroll")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> payrollRun(
+            @RequestParam int year,
+            @RequestParam int month,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "false") boolean detail
+    ) {
+        if (month < 1 || month > 12) {
+            return ResponseEntity.badRequest().build();
+        }
+        PayrollRunDTO run = payrollService.runPayroll(year, month);
+        ReportExportService.Format exportFormat = ReportExportService.Format.parse(format);
+        if (exportFormat != null) {
+            return ReportController.startExport(exportFormat, "payroll-" + year + "-" + month + (detail ? "-detail" : ""),
+                    reportExportService.exportPayroll(run, detail, exportFormat));
+        }
+        return ResponseEntity.ok(run);
+    }
+    // ======================
+    // ADMIN: CLOSE PAYROLL PERIOD
+    // ======================
+    // Stores every staff member's salary for the month; later rate changes no longer affect it
+    @PostMapping("/admin/payroll/close")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> closePayrollPeriod(
+            @RequestParam int year,
+            @RequestParam int month,
+            Principal principal
+    ) {
+        if (month < 1 || month > 12) {
+            return ResponseEntity.badRequest().body("Invalid month");
+        }
+        try {
+            User user = userRepository.findByEmail(principal.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            return ResponseEntity.ok(payrollService.closePeriod(year, month, user));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        }
+    }
+    @GetMapping("/admin/payroll/periods")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public List<PayrollPeriod> closedPayrollPeriods() {
+        return payrollService.getClosedPeriods();
+    }
+    // ======================
     // MY MONTHLY SALARY
     // ======================
     @GetMapping("/me/monthly")
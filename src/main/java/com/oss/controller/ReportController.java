@@ -1,76 +1,141 @@
 package com.oss.controller;
 import com.oss.dto.*;
+import com.oss.model.DailySummary;
+import com.oss.service.DailySummaryService;
+import com.oss.service.ReportCacheService;
+import com.oss.service.ReportExportService;
 import com.oss.service.ReportService;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Collectors;
+/**
+ * Report endpoints; add format=csv|ndjson to stream rows instead of returning one JSON document
+ * Streamed exports run one at a time by default (report-export.max-concurrent) because each holds a
+ * database connection until the download finishes; another export started meanwhile gets 429
+ */
 @RestController
 @RequestMapping("/api/reports")
 public class ReportController {
     private final ReportService reportService;
-    public ReportController(ReportService reportService) {
+    private final ReportExportService reportExportService;
+    private final ReportCacheService reportCache;
+    private final DailySummaryService dailySummaryService;
+    public ReportController(ReportService reportService,
+                            ReportExportService reportExportService,
+                            ReportCacheService reportCache,
+                            DailySummaryService dailySummaryService) {
         this.reportService = reportService;
+        this.reportExportService = reportExportService;
+        this.reportCache = reportCache;
+        this.dailySummaryService = dailySummaryService;
     }
     /**
      * GET /api/reports/bank-deposits?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD
      * Get all bank deposits for a date range (SUPERADMIN only)
+     * Add format=csv|ndjson to stream the rows instead of returning one JSON document
      */
     @GetMapping("/bank-deposits")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
-    public ResponseEntity<List<BankDepositDTO>> getBankDeposits(
+    public ResponseEntity<?> getBankDeposits(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        return ResponseEntity.ok(reportService.getBankDeposits(startDate, endDate));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String format) {
+        ReportExportService.Format exportFormat = ReportExportService.Format.parse(format);
+        if (exportFormat != null) {
+            return startExport(exportFormat, "bank-deposits",
+                    reportExportService.exportBankDeposits(startDate, endDate, exportFormat));
+        }
+        return ResponseEntity.ok(reportCache.get("bank-deposits", startDate, endDate, null,
+                () -> reportService.getBankDeposits(startDate, endDate)));
     }
     /**
      * GET /api/reports/expenses/daily/{date}
      * Get daily expense report (SUPERADMIN only)
+     * Add format=csv|ndjson to stream the day's expense line items
      */
     @GetMapping("/expenses/daily/{date}")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
-    public ResponseEntity<DailyExpenseReportDTO> getDailyExpenseReport(
-            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        return ResponseEntity.ok(reportService.getDailyExpenseReport(date));
+    public ResponseEntity<?> getDailyExpenseReport(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String format) {
+        ReportExportService.Format exportFormat = ReportExportService.Format.parse(format);
+        if (exportFormat != null) {
+            return startExport(exportFormat, "expenses-" + date,
+                    reportExportService.exportExpenses(date, date, exportFormat));
+        }
+        return ResponseEntity.ok(reportCache.get("expenses-daily", date, date, null,
+                () -> reportService.getDailyExpenseReport(date)));
     }
     /**
      * GET /api/reports/expenses/monthly/{year}/{month}
      * Get monthly expense report (SUPERADMIN only)
+     * Add format=csv|ndjson to stream the month's expense line items
      */
     @GetMapping("/expenses/monthly/{year}/{month}")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
-    public ResponseEntity<MonthlyExpenseReportDTO> getMonthlyExpenseReport(
+    public ResponseEntity<?> getMonthlyExpenseReport(
             @PathVariable int year,
-            @PathVariable int month) {
+            @PathVariable int month,
+            @RequestParam(required = false) String format) {
         // Validate month
         if (month < 1 || month > 12) {
             return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(reportService.getMonthlyExpenseReport(year, month));
+        ReportExportService.Format exportFormat = ReportExportService.Format.parse(format);
+        if (exportFormat != null) {
+            LocalDate startDate = LocalDate.of(year, month, 1);
+            return startExport(exportFormat, "expenses-" + year + "-" + month,
+                    reportExportService.exportExpenses(startDate, startDate.plusMonths(1).minusDays(1), exportFormat));
+        }
+        LocalDate monthStart = LocalDate.of(year, month, 1);
+        return ResponseEntity.ok(reportCache.get("expenses-monthly", monthStart, monthStart.plusMonths(1).minusDays(1), null,
+                () -> reportService.getMonthlyExpenseReport(year, month)));
     }
     /**
      * GET /api/reports/expenses/by-category?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD
      * Get expenses grouped by category (SUPERADMIN only)
+     * Add format=csv|ndjson to stream the expense line items for the range
      */
     @GetMapping("/expenses/by-category")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
-    public ResponseEntity<ExpenseByCategoryReportDTO> getExpensesByCategory(
+    public ResponseEntity<?> getExpensesByCategory(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        return ResponseEntity.ok(reportService.getExpensesByCategory(startDate, endDate));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String format) {
+        ReportExportService.Format exportFormat = ReportExportService.Format.parse(format);
+        if (exportFormat != null) {
+            return startExport(exportFormat, "expenses-" + startDate + "-" + endDate,
+                    reportExportService.exportExpenses(startDate, endDate, exportFormat));
+        }
+        return ResponseEntity.ok(reportCache.get("expenses-by-category", startDate, endDate, null,
+                () -> reportService.getExpensesByCategory(startDate, endDate)));
     }
     /**
      * GET /api/reports/expenses/by-shop?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD
      * Get expenses grouped by shop (SUPERADMIN only)
+     * Add format=csv|ndjson to stream the expense line items for the range
      */
     @GetMapping("/expenses/by-shop")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
-    public ResponseEntity<ExpenseByShopReportDTO> getExpensesByShop(
+    public ResponseEntity<?> getExpensesByShop(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        return ResponseEntity.ok(reportService.getExpensesByShop(startDate, endDate));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String format) {
+        ReportExportService.Format exportFormat = ReportExportService.Format.parse(format);
+        if (exportFormat != null) {
+            return startExport(exportFormat, "expenses-" + startDate + "-" + endDate,
+                    reportExportService.exportExpenses(startDate, endDate, exportFormat));
+        }
+        return ResponseEntity.ok(reportCache.get("expenses-by-shop", startDate, endDate, null,
+                () -> reportService.getExpensesByShop(startDate, endDate)));
     }
     /**
      * GET /api/reports/business-summary
@@ -79,31 +144,138 @@ public class ReportController {
     @GetMapping("/business-summary")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
     public ResponseEntity<BusinessSummaryDTO> getBusinessSummary() {
-        return ResponseEntity.ok(reportService.getBusinessSummary());
+        // Depends on every business date (all-time totals), so any write evicts it
+        return ResponseEntity.ok(reportCache.get("business-summary", LocalDate.MIN, LocalDate.MAX, LocalDate.now(),
+                reportService::getBusinessSummary));
     }
     /**
      * GET /api/reports/staff-performance?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD
      * Get staff performance metrics using pre-calculated daily summaries (SUPERADMIN only)
      * This is optimized for fast loading - uses daily_summaries table
+     * Add format=csv|ndjson to stream the summary rows
      */
     @GetMapping("/staff-performance")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
     public ResponseEntity<?> getStaffPerformance(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        return ResponseEntity.ok(reportService.getStaffPerformance(startDate, endDate));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String format) {
+        ReportExportService.Format exportFormat = ReportExportService.Format.parse(format);
+        if (exportFormat != null) {
+            return startExport(exportFormat, "staff-performance-" + startDate + "-" + endDate,
+                    reportExportService.exportDailySummaries(null, startDate, endDate, exportFormat));
+        }
+        return ResponseEntity.ok(reportCache.get("staff-performance", startDate, endDate, null,
+                () -> reportService.getStaffPerformance(startDate, endDate)));
     }
     /**
      * GET /api/reports/shop-performance/{shopId}?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD
      * Get shop performance metrics using pre-calculated daily summaries (SUPERADMIN only)
      * This is optimized for fast loading - uses daily_summaries table
+     * Add format=csv|ndjson to stream the summary rows
      */
     @GetMapping("/shop-performance/{shopId}")
     @PreAuthorize("hasAuthority('SUPERADMIN')")
     public ResponseEntity<?> getShopPerformance(
             @PathVariable Long shopId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        return ResponseEntity.ok(reportService.getShopPerformance(shopId, startDate, endDate));
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String format) {
+        ReportExportService.Format exportFormat = ReportExportService.Format.parse(format);
+        if (exportFormat != null) {
+            return startExport(exportFormat, "shop-" + shopId + "-performance-" + startDate + "-" + endDate,
+                    reportExportService.exportDailySummaries(shopId, startDate, endDate, exportFormat));
+        }
+        return ResponseEntity.ok(reportCache.get("shop-performance", startDate, endDate, shopId,
+                () -> reportService.getShopPerformance(shopId, startDate, endDate)));
+    }
+    /**
+     * GET /api/reports/monthly-summaries?startYear=YYYY&endYear=YYYY[&shopId=N]
+     * Get month-by-month totals from the monthly rollup table (SUPERADMIN only)
+     * Intended for year-over-year and multi-year dashboards
+     * Add format=csv|ndjson to stream the rollup rows
+     */
+    @GetMapping("/monthly-summaries")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> getMonthlySummaries(
+            @RequestParam int startYear,
+            @RequestParam int endYear,
+            @RequestParam(required = false) Long shopId,
+            @RequestParam(required = false) String format) {
+        ReportExportService.Format exportFormat = ReportExportService.Format.parse(format);
+        if (exportFormat != null) {
+            return startExport(exportFormat, "monthly-summaries-" + startYear + "-" + endYear,
+                    reportExportService.exportMonthlySummaries(shopId, startYear, endYear, exportFormat));
+        }
+        return ResponseEntity.ok(reportCache.get("monthly-summaries", LocalDate.of(startYear, 1, 1), LocalDate.of(endYear, 12, 31), shopId,
+                () -> reportService.getMonthlySummaries(shopId, startYear, endYear)));
+    }
+    /**
+     * GET /api/reports/daily-summaries?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD[&shopId=N]
+     * Get per shop-day summaries (SUPERADMIN only)
+     * Closed days come from daily_summaries; open days (isClosed=false) carry live running totals
+     */
+    @GetMapping("/daily-summaries")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<List<DailySummaryDTO>> getDailySummaries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long shopId) {
+        return ResponseEntity.ok((shopId != null
+                ? dailySummaryService.getSummariesByShop(shopId, startDate, endDate)
+                : dailySummaryService.getSummaries(startDate, endDate)).stream()
+                .map(DailySummaryService::toDTO)
+                .collect(Collectors.toList()));
+    }
+    /**
+     * GET /api/reports/daily-summaries/{shopId}/{date}
+     * Get the summary of one shop-day (SUPERADMIN only); for today's open day this is served from memory
+     */
+    @GetMapping("/daily-summaries/{shopId}/{date}")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<DailySummaryDTO> getDailySummary(
+            @PathVariable Long shopId,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        DailySummary summary = dailySummaryService.getSummary(shopId, date);
+        if (summary == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(DailySummaryService.toDTO(summary));
+    }
+    /**
+     * GET /api/reports/cache-stats
+     * Get report cache hit/miss counters (SUPERADMIN only)
+     */
+    @GetMapping("/cache-stats")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(reportCache.getStats());
+    }
+    /**
+     * POST /api/reports/cache/clear
+     * Drop all cached report results (SUPERADMIN only)
+     */
+    @PostMapping("/cache/clear")
+    @PreAuthorize("hasAuthority('SUPERADMIN')")
+    public ResponseEntity<?> clearCache() {
+        reportCache.invalidateAll();
+        return ResponseEntity.ok(reportCache.getStats());
+    }
+    /**
+     * Errors such as a refused export (429) or an invalid format (400) with their own status
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleStatus(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+    }
+    /**
+     * Set headers for a streamed export; the body is written to the response by StreamingResponseBodyConverter
+     */
+    static ResponseEntity<StreamingResponseBody> startExport(ReportExportService.Format format, String name,
+                                                             StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + format.getExtension() + "\"")
+                .body(body);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package com.oss.dto;
+import com.oss.model.AttendanceStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+/**
+ * Server-side filters for attendance listings; null fields are not filtered on
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceFilter {
+    private Long userId;
+    private LocalDate startDate; // work date, inclusive
+    private LocalDate endDate;   // work date, inclusive
+    private AttendanceStatus status;
+}
@@ -0,0 +1,21 @@
+package com.oss.dto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+import java.util.List;
+/**
+ * Staff x days attendance grid over a date range, one row per staff member with attendance in it
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceMatrixDTO {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private int dayCount;
+    private String encoding; // dense or json
+    private List<AttendanceMatrixRowDTO> rows;
+}
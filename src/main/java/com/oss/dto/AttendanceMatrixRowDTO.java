@@ -0,0 +1,34 @@
+package com.oss.dto;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+/**
+ * One staff member's row of the attendance matrix
+ * Day i of the row is startDate + i. In the dense encoding each day set is a base64url bitset
+ * (little-endian: bit i of the bytes is day i); in the json encoding days holds one code per day
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AttendanceMatrixRowDTO {
+    private Long userId;
+    private String name;
+    private String email;
+    // Same counts as the staff attendance report: records, working and not working records
+    private long totalDays;
+    private long workingDays;
+    private long notWorkingDays;
+    private double totalOvertimeHours;
+    private double totalDeductionHours;
+    // dense encoding
+    private String worked;
+    private String notWorked;
+    private String overtime;
+    private String deduction;
+    // json encoding: 0 no record, 1 worked, 2 not working, plus 4 if overtime and 8 if deduction
+    private int[] days;
+}
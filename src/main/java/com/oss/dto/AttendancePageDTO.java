@@ -0,0 +1,20 @@
+package com.oss.dto;
+import com.oss.model.StaffAttendanceHistory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+/**
+ * One page of attendance records, newest work date first
+ * Pass nextCursor back as the cursor parameter to fetch the following page
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendancePageDTO {
+    private List<StaffAttendanceHistory> items;
+    private String nextCursor; // null on the last page
+    private Boolean hasMore;
+}
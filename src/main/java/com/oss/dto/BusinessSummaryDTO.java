@@ -3,14 +3,20 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import java.util.List;
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class BusinessSummaryDTO {
-    private SummaryDataDTO summary;
+    private String asOfDate;
+    private SummaryDataDTO summary; // all time
+    private PeriodDataDTO today;
+    private PeriodDataDTO currentWeek;
     private PeriodDataDTO currentMonth;
     private PeriodDataDTO previousMonth;
-    private TopShopDTO topPerformingShop;
-    private TrendsDTO recentTrends;
+    private PeriodDataDTO currentYear;
+    private TopShopDTO topPerformingShop; // by profit this month
+    private TrendsDTO recentTrends; // this month vs previous month, in percent
+    private List<TopExpenseCategoryDTO> topExpenseCategories; // this month
 }
\ No newline at end of file
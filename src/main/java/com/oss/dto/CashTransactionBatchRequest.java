@@ -0,0 +1,17 @@
+package com.oss.dto;
+import lombok.Data;
+import java.util.List;
+/**
+ * Many expenses and manual sales for one daily cash, entered in a single request
+ */
+@Data
+public class CashTransactionBatchRequest {
+    private List<Item> expenses;
+    private List<Item> sales;
+    @Data
+    public static class Item {
+        private Double amount;
+        private Long expenseTypeId; // expenses only
+        private String description;
+    }
+}
@@ -0,0 +1,21 @@
+package com.oss.dto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+/**
+ * Server-side filters for credit listings; null fields are not filtered on
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditFilter {
+    private Long userId;
+    private Long shopId;
+    private String department;
+    private LocalDate startDate; // transaction date, inclusive
+    private LocalDate endDate;   // transaction date, inclusive
+    private Boolean isPaid;
+}
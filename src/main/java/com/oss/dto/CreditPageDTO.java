@@ -0,0 +1,19 @@
+package com.oss.dto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+/**
+ * One page of credits, newest first
+ * Pass nextCursor back as the cursor parameter to fetch the following page
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditPageDTO {
+    private List<OSD_CreditDTO> items;
+    private String nextCursor; // null on the last page
+    private Boolean hasMore;
+}
@@ -0,0 +1,29 @@
+package com.oss.dto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySummaryDTO {
+    private Long shopId;
+    private String shopCode;
+    private String shopName;
+    private String businessDate;
+    private Double openingCash;
+    private Double closingCash;
+    private Double totalRevenue;
+    private Double totalExpenses;
+    private Double totalCredits;
+    private Double netSales;
+    private Double profit;
+    private Integer expenseCount;
+    private Integer creditCount;
+    private Integer manualSaleCount;
+    private Integer staffCount;
+    private Double totalAttendanceHours;
+    private Boolean isClosed; // false = live running totals of an open day
+    private Long calculatedAt;
+}
@@ -0,0 +1,47 @@
+package com.oss.dto;
+import com.oss.model.MonthlySummary;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlySummaryDTO {
+    private Long shopId;
+    private String shopCode;
+    private String shopName;
+    private Integer year;
+    private Integer month;
+    private Double totalRevenue;
+    private Double totalExpenses;
+    private Double totalCredits;
+    private Double netSales;
+    private Double profit;
+    private Integer expenseCount;
+    private Integer creditCount;
+    private Integer manualSaleCount;
+    private Integer dayCount;
+    private Long updatedAt;
+
+    public static MonthlySummaryDTO from(MonthlySummary summary) {
+        return MonthlySummaryDTO.builder()
+                .shopId(summary.getShop().getId())
+                .shopCode(summary.getShop().getCode())
+                .shopName(summary.getShop().getName())
+                .year(summary.getYear())
+                .month(summary.getMonth())
+                .totalRevenue(summary.getTotalRevenue())
+                .totalExpenses(summary.getTotalExpenses())
+                .totalCredits(summary.getTotalCredits())
+                .netSales(summary.getNetSales())
+                .profit(summary.getProfit())
+                .expenseCount(summary.getExpenseCount())
+                .creditCount(summary.getCreditCount())
+                .manualSaleCount(summary.getManualSaleCount())
+                .dayCount(summary.getDayCount())
+                .updatedAt(summary.getUpdatedAt())
+                .build();
+    }
+}
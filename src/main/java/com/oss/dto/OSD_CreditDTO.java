@@ -1,8 +1,12 @@
 package com.oss.dto;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 @Data
+@NoArgsConstructor
+@AllArgsConstructor // field order is used by the JPQL projection in CreditRepositoryImpl
 public class OSD_CreditDTO {
     private Long id;
     private Long userId;
@@ -15,6 +15,7 @@ public class OSS_DailySalaryDto {
     private String overtimeReason;
     private String deductionReason;
     private Boolean qualified;
+    private String status;
     // Constructor for backward compatibility
     public OSS_DailySalaryDto(LocalDate date, double hours, double salary) {
         this.date = date;
@@ -0,0 +1,29 @@
+package com.oss.dto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+/**
+ * Salary of one staff member in a payroll run
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollEntryDTO {
+    private Long userId;
+    private String name;
+    private String email;
+    private Double dailySalary;
+    private Double hourlyRate;
+    private Double deductionRatePerHour;
+    private Integer totalDaysWorked;
+    private Double totalHours;
+    private Double totalOvertimeHours;
+    private Double totalDeductionHours;
+    private Double baseSalary;   // before credits
+    private Double totalCredits; // credits deducted
+    private Double totalSalary;  // after credits
+    private List<OSS_DailySalaryDto> dailyBreakdown;
+}
@@ -0,0 +1,22 @@
+package com.oss.dto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+/**
+ * Salaries of every staff member for one month
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayrollRunDTO {
+    private Integer year;
+    private Integer month;
+    private Integer staffCount;
+    private Double totalBaseSalary;
+    private Double totalCredits;
+    private Double totalSalary;
+    private List<PayrollEntryDTO> staff;
+}
@@ -1,4 +1,5 @@
 package com.oss.model;
+import com.oss.config.PooledId;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDate;
@@ -12,7 +13,7 @@ import java.time.LocalDate;
 @Builder
 public class Attendance {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId(sequence = "attendance")
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
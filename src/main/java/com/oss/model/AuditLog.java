@@ -1,4 +1,5 @@
 package com.oss.model;
+import com.oss.config.PooledId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,7 +14,7 @@ import java.time.Instant;
 @Builder
 public class AuditLog {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId(sequence = "audit_logs")
     private Long id;
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
@@ -0,0 +1,7 @@
+package com.oss.model;
+
+public enum BackfillJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,41 @@
+package com.oss.model;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+/**
+ * Credit Balance - Running credit totals of one staff member
+ * Kept current by CreditLedgerService on every credit write, so balance lookups read one row
+ */
+@Entity
+@Table(name = "credit_balances",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CreditBalance {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    @Column(name = "total_amount", nullable = false)
+    @Builder.Default
+    private Double totalAmount = 0.0;
+    @Column(name = "paid_amount", nullable = false)
+    @Builder.Default
+    private Double paidAmount = 0.0;
+    @Column(name = "unpaid_amount", nullable = false)
+    @Builder.Default
+    private Double unpaidAmount = 0.0;
+    @Column(name = "credit_count", nullable = false)
+    @Builder.Default
+    private Integer creditCount = 0;
+    @Column(name = "unpaid_count", nullable = false)
+    @Builder.Default
+    private Integer unpaidCount = 0;
+    @Column(name = "updated_at")
+    private Long updatedAt; // timestamp in milliseconds
+}
@@ -0,0 +1,42 @@
+package com.oss.model;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+/**
+ * Credit Monthly Balance - Credit totals of one staff member for one month of transaction dates
+ * Used by the salary calculation, which deducts a whole month of credits
+ */
+@Entity
+@Table(name = "credit_monthly_balances",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "year", "month"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CreditMonthlyBalance {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    @Column(name = "year", nullable = false)
+    private Integer year;
+    @Column(name = "month", nullable = false)
+    private Integer month;
+    @Column(name = "total_amount", nullable = false)
+    @Builder.Default
+    private Double totalAmount = 0.0;
+    @Column(name = "paid_amount", nullable = false)
+    @Builder.Default
+    private Double paidAmount = 0.0;
+    @Column(name = "unpaid_amount", nullable = false)
+    @Builder.Default
+    private Double unpaidAmount = 0.0;
+    @Column(name = "credit_count", nullable = false)
+    @Builder.Default
+    private Integer creditCount = 0;
+    @Column(name = "updated_at")
+    private Long updatedAt; // timestamp in milliseconds
+}
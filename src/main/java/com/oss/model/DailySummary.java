@@ -1,4 +1,5 @@
 package com.oss.model;
+import com.oss.config.PooledId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,7 +19,7 @@ import java.time.LocalDate;
 @Builder
 public class DailySummary {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId(sequence = "daily_summaries")
     private Long id;
     @ManyToOne
     @JoinColumn(name = "shop_id", nullable = false)
@@ -0,0 +1,20 @@
+package com.oss.model;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.time.LocalDate;
+/**
+ * Grouped expense totals per shop, expense type and business date
+ * Built directly by the reporting queries - one row per group, not per transaction
+ */
+@Data
+@AllArgsConstructor
+public class ExpenseAggregate {
+    private Long shopId;
+    private String shopCode;
+    private String shopName;
+    private Long expenseTypeId;     // null when the expense has no type
+    private String expenseTypeName;
+    private LocalDate businessDate;
+    private Double totalAmount;
+    private Long transactionCount;
+}
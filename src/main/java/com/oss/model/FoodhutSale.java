@@ -1,11 +1,12 @@
 package com.oss.model;
+import com.oss.config.PooledId;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 @Entity
 @Table(name = "foodhut_sales")
 public class FoodhutSale {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId(sequence = "foodhut_sales")
     private Long id;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_variation_id", nullable = false)
@@ -0,0 +1,59 @@
+package com.oss.model;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+/**
+ * Monthly Summary - Rollup of DailySummary rows per shop per month
+ * Kept current by applying each day's delta when its DailySummary is written
+ */
+@Entity
+@Table(name = "monthly_summaries",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"shop_id", "year", "month"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MonthlySummary {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @ManyToOne
+    @JoinColumn(name = "shop_id", nullable = false)
+    private Shop shop;
+    @Column(name = "year", nullable = false)
+    private Integer year;
+    @Column(name = "month", nullable = false)
+    private Integer month;
+    // Totals of the month's daily summaries
+    @Column(name = "total_revenue")
+    @Builder.Default
+    private Double totalRevenue = 0.0;
+    @Column(name = "total_expenses")
+    @Builder.Default
+    private Double totalExpenses = 0.0;
+    @Column(name = "total_credits")
+    @Builder.Default
+    private Double totalCredits = 0.0;
+    @Column(name = "net_sales")
+    @Builder.Default
+    private Double netSales = 0.0;
+    @Column(name = "profit")
+    @Builder.Default
+    private Double profit = 0.0;
+    @Column(name = "expense_count")
+    @Builder.Default
+    private Integer expenseCount = 0;
+    @Column(name = "credit_count")
+    @Builder.Default
+    private Integer creditCount = 0;
+    @Column(name = "manual_sale_count")
+    @Builder.Default
+    private Integer manualSaleCount = 0;
+    @Column(name = "day_count")
+    @Builder.Default
+    private Integer dayCount = 0; // number of daily summaries rolled up
+    @Column(name = "updated_at")
+    private Long updatedAt; // timestamp in milliseconds
+}
@@ -0,0 +1,38 @@
+package com.oss.model;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+/**
+ * Payroll Period - A month whose payroll has been closed
+ * Salaries of a closed month are served from its PayrollSnapshot rows and never recomputed
+ */
+@Entity
+@Table(name = "payroll_periods",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"year", "month"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PayrollPeriod {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "year", nullable = false)
+    private Integer year;
+    @Column(name = "month", nullable = false)
+    private Integer month;
+    @Column(name = "staff_count", nullable = false)
+    private Integer staffCount;
+    @Column(name = "total_base_salary", nullable = false)
+    private Double totalBaseSalary;
+    @Column(name = "total_credits", nullable = false)
+    private Double totalCredits;
+    @Column(name = "total_salary", nullable = false)
+    private Double totalSalary;
+    @Column(name = "closed_by_user_id")
+    private Long closedByUserId;
+    @Column(name = "closed_at", nullable = false)
+    private Long closedAt; // timestamp in milliseconds
+}
@@ -0,0 +1,54 @@
+package com.oss.model;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+/**
+ * Payroll Snapshot - One staff member's salary for a closed month, as paid
+ * Rates and names are copied so later edits to the user do not change the record
+ */
+@Entity
+@Table(name = "payroll_snapshots",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"year", "month", "user_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PayrollSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "year", nullable = false)
+    private Integer year;
+    @Column(name = "month", nullable = false)
+    private Integer month;
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    private String name;
+    private String email;
+    @Column(name = "daily_salary")
+    private Double dailySalary;
+    @Column(name = "hourly_rate")
+    private Double hourlyRate;
+    @Column(name = "deduction_rate_per_hour")
+    private Double deductionRatePerHour;
+    @Column(name = "total_days_worked")
+    private Integer totalDaysWorked;
+    @Column(name = "total_hours")
+    private Double totalHours;
+    @Column(name = "total_overtime_hours")
+    private Double totalOvertimeHours;
+    @Column(name = "total_deduction_hours")
+    private Double totalDeductionHours;
+    @Column(name = "base_salary")
+    private Double baseSalary;
+    @Column(name = "total_credits")
+    private Double totalCredits;
+    @Column(name = "total_salary")
+    private Double totalSalary;
+    // JSON array with one array per day, oldest first:
+    // [date, status, qualified, hours, salary, overtimeHours, deductionHours, overtimeReason, deductionReason]
+    @Column(name = "daily_breakdown", columnDefinition = "TEXT")
+    private String dailyBreakdown;
+}
@@ -0,0 +1,32 @@
+package com.oss.model;
+import com.fasterxml.jackson.annotation.JsonGetter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+/**
+ * One attendance record of any staff member, projected like AttendanceHistory plus the user columns
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StaffAttendanceHistory {
+    private Long id;
+    private Long userId;
+    private String userName;
+    private String userEmail;
+    private LocalDate workDate;
+    private AttendanceStatus status;
+    private Boolean isWorking;
+    private Double overtimeHours;
+    private Double deductionHours;
+    private String overtimeReason;
+    private String deductionReason;
+
+    // Same as AttendanceHistory: status as a plain string
+    @JsonGetter("status")
+    public String getStatusAsString() {
+        return status != null ? status.name() : null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.oss.model;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+/**
+ * Summary Backfill Job - Progress of a chunked daily summary recalculation
+ * nextDate is advanced in the same transaction as each chunk's summaries, so a restarted job resumes exactly there
+ */
+@Entity
+@Table(name = "summary_backfill_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SummaryBackfillJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private BackfillJobStatus status;
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+    @Column(name = "chunk_days", nullable = false)
+    private Integer chunkDays;
+    @Column(name = "next_date", nullable = false)
+    private LocalDate nextDate; // first business date not yet processed
+    @Column(name = "total_days", nullable = false)
+    private Integer totalDays;
+    @Column(name = "processed_days", nullable = false)
+    @Builder.Default
+    private Integer processedDays = 0; // calendar days done
+    @Column(name = "summaries_written", nullable = false)
+    @Builder.Default
+    private Integer summariesWritten = 0;
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+    @Column(name = "created_at")
+    private Long createdAt; // timestamp in milliseconds
+    @Column(name = "updated_at")
+    private Long updatedAt;
+    @Column(name = "completed_at")
+    private Long completedAt;
+}
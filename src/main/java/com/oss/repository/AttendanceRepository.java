@@ -1,27 +1,56 @@
 package com.oss.repository;
+import com.oss.config.LocalDateAttributeConverter;
 import com.oss.model.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
+public interface AttendanceRepository extends JpaRepository<Attendance, Long>, AttendanceRepositoryCustom {
+    LocalDateAttributeConverter DATE_CONVERTER = new LocalDateAttributeConverter();
     // ======================
     // BASIC QUERIES
     // ======================
+    // Point read on the (user_id, work_date) unique index
     Optional<Attendance> findByUserAndWorkDate(
             User user,
             LocalDate workDate
                                               );
 
-    // ✅ Get the LATEST attendance record for a user on a specific date
-    // Ordered by ID DESC to get the most recent if duplicates exist
-    @Query("SELECT a FROM Attendance a WHERE a.user = :user AND a.workDate = :workDate ORDER BY a.id DESC")
-    Optional<Attendance> findLatestByUserAndWorkDate(
-            @Param("user") User user,
-            @Param("workDate") LocalDate workDate
-                                                    );
+    /**
+     * Set a user's status for a day, creating the day's record if it does not exist yet
+     * One INSERT ... ON CONFLICT against the (user_id, work_date) unique index, so concurrent
+     * check-ins of the same user and day end up on a single row
+     * @return number of rows written (1)
+     */
+    @Transactional
+    default int upsertStatus(Long userId, LocalDate workDate, AttendanceStatus status) {
+        // The id of a new row is reserved from the same sequence PooledIdGenerator draws its blocks from
+        reserveId();
+        return upsertStatus(userId, DATE_CONVERTER.convertToDatabaseColumn(workDate), status.name(),
+                status != AttendanceStatus.NOT_WORKING);
+    }
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE id_sequences SET next_val = next_val + 1 WHERE sequence_name = 'attendance'", nativeQuery = true)
+    int reserveId();
+    // work_date is passed as stored (epoch millis), native queries bypass the attribute converter
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO attendance (id, user_id, work_date, status, is_working, overtime_hours, deduction_hours) " +
+                   "VALUES ((SELECT next_val - 1 FROM id_sequences WHERE sequence_name = 'attendance'), " +
+                   ":userId, :workDate, :status, :isWorking, 0, 0) " +
+                   "ON CONFLICT (user_id, work_date) DO UPDATE SET status = excluded.status, is_working = excluded.is_working",
+           nativeQuery = true)
+    int upsertStatus(
+            @Param("userId") Long userId,
+            @Param("workDate") Long workDate,
+            @Param("status") String status,
+            @Param("isWorking") boolean isWorking
+    );
 
     // New convenience method: find by userId and workDate directly
     Optional<Attendance> findByUserIdAndWorkDate(Long userId, LocalDate workDate);
@@ -42,6 +71,25 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
     // Find all attendance records for a specific work date (for daily summary)
     List<Attendance> findByWorkDate(LocalDate workDate);
 
+    // Find all attendance records in a date range (for the summary backfill)
+    List<Attendance> findByWorkDateBetween(LocalDate startDate, LocalDate endDate);
+    // All attendance records in a date range with their users, for a payroll run
+    @Query("SELECT a FROM Attendance a JOIN FETCH a.user WHERE a.workDate BETWEEN :startDate AND :endDate")
+    List<Attendance> findWithUserByWorkDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Attendance cells of every staff member over a date range, for the attendance matrix
+    // Row layout: userId, name, email, workDate, isWorking, overtimeHours, deductionHours
+    @Query("SELECT u.id, u.name, u.email, a.workDate, a.isWorking, a.overtimeHours, a.deductionHours " +
+           "FROM Attendance a JOIN a.user u WHERE a.workDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY u.name, u.id, a.workDate")
+    List<Object[]> findMatrixCellsByWorkDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Attendance counts per work date over a date range
+    // Row layout: workDate, recordCount, workingCount
+    @Query("SELECT a.workDate, COUNT(a), SUM(CASE WHEN a.isWorking = true THEN 1 ELSE 0 END) FROM Attendance a " +
+           "WHERE a.workDate BETWEEN :startDate AND :endDate GROUP BY a.workDate")
+    List<Object[]> countByWorkDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
     // ======================
     // MY ATTENDANCE HISTORY
     // ======================
@@ -80,29 +128,4 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
         GROUP BY u.id, u.name, u.email
     """)
     List<StaffAttendanceReport> getAttendanceReportGroupedByUser();
-    // ======================
-    // STAFF SALARY REPORT (NEW SIMPLIFIED VERSION)
-    // ======================
-    // ✅ Uses daily salary + overtime/deduction adjustments
-    @Query("""
-        SELECT new com.oss.model.StaffSalaryReport(
-            u.id,
-            u.name,
-            COUNT(CASE WHEN a.isWorking = true THEN 1 END),
-            SUM(COALESCE(a.overtimeHours, 0)),
-            SUM(COALESCE(a.deductionHours, 0)),
-            u.dailySalary,
-            (COUNT(CASE WHEN a.isWorking = true THEN 1 END) * u.dailySalary)
-                + (SUM(COALESCE(a.overtimeHours, 0)) * (u.dailySalary / 8.0))
-                - (SUM(COALESCE(a.deductionHours, 0)) * (u.dailySalary / 8.0))
-        )
-        FROM Attendance a
-        JOIN a.user u
-        WHERE a.workDate BETWEEN :from AND :to
-        GROUP BY u.id, u.name, u.dailySalary
-    """)
-    List<StaffSalaryReport> getMonthlyStaffSalary(
-            @Param("from") LocalDate from,
-            @Param("to") LocalDate to
-                                                 );
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.oss.repository;
+import com.oss.dto.AttendanceFilter;
+import com.oss.model.StaffAttendanceHistory;
+import java.time.LocalDate;
+import java.util.List;
+/**
+ * Attendance listing queries whose WHERE clause depends on which filters are set
+ */
+public interface AttendanceRepositoryCustom {
+    /**
+     * Attendance matching the filter, newest first by (workDate, id), as projected rows
+     * @param afterWorkDate workDate of the last row of the previous page, null for the first page
+     * @param afterId       id of the last row of the previous page, null for the first page
+     * @param limit         maximum number of rows, null for all
+     */
+    List<StaffAttendanceHistory> findPage(AttendanceFilter filter, LocalDate afterWorkDate, Long afterId, Integer limit);
+}
@@ -0,0 +1,56 @@
+package com.oss.repository;
+import com.oss.dto.AttendanceFilter;
+import com.oss.model.StaffAttendanceHistory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Only the predicates of the filters that are set are added, so each query can use the
+ * matching (column, work_date, id) index and a page costs the same wherever it starts
+ */
+public class AttendanceRepositoryImpl implements AttendanceRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<StaffAttendanceHistory> findPage(AttendanceFilter filter, LocalDate afterWorkDate, Long afterId, Integer limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.oss.model.StaffAttendanceHistory(a.id, u.id, u.name, u.email, a.workDate, a.status, " +
+                "a.isWorking, a.overtimeHours, a.deductionHours, a.overtimeReason, a.deductionReason) " +
+                "FROM Attendance a LEFT JOIN a.user u WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        if (filter.getUserId() != null) {
+            jpql.append(" AND a.user.id = :userId");
+            params.put("userId", filter.getUserId());
+        }
+        if (filter.getStatus() != null) {
+            jpql.append(" AND a.status = :status");
+            params.put("status", filter.getStatus());
+        }
+        if (filter.getStartDate() != null) {
+            jpql.append(" AND a.workDate >= :startDate");
+            params.put("startDate", filter.getStartDate());
+        }
+        if (filter.getEndDate() != null) {
+            jpql.append(" AND a.workDate <= :endDate");
+            params.put("endDate", filter.getEndDate());
+        }
+        if (afterWorkDate != null && afterId != null) {
+            // The first term bounds the index range scan, the second breaks ties on workDate by id
+            jpql.append(" AND a.workDate <= :afterWorkDate AND (a.workDate < :afterWorkDate OR a.id < :afterId)");
+            params.put("afterWorkDate", afterWorkDate);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY a.workDate DESC, a.id DESC");
+        TypedQuery<StaffAttendanceHistory> query = entityManager.createQuery(jpql.toString(), StaffAttendanceHistory.class);
+        params.forEach(query::setParameter);
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+}
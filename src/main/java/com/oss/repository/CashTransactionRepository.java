@@ -1,12 +1,16 @@
 package com.oss.repository;
 import com.oss.model.CashTransaction;
+import com.oss.model.ExpenseAggregate;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 @Repository
 public interface CashTransactionRepository extends JpaRepository<CashTransaction, Long> {
     List<CashTransaction> findByDailyCashId(Long dailyCashId);
@@ -15,6 +19,43 @@ public interface CashTransactionRepository extends JpaRepository<CashTransaction
     Double sumAmountByDailyCashIdAndType(@Param("dailyCashId") Long dailyCashId, @Param("type") String type);
     @Query("SELECT ct FROM CashTransaction ct WHERE ct.dailyCash.id = :dailyCashId ORDER BY ct.createdAt DESC")
     List<CashTransaction> findByDailyCashIdOrderByCreatedAtDesc(@Param("dailyCashId") Long dailyCashId);
+    /**
+     * Transactions of a day with expense type and recorder fetched in the same query
+     */
+    @Query("SELECT ct FROM CashTransaction ct JOIN FETCH ct.dailyCash dc JOIN FETCH dc.shop " +
+           "LEFT JOIN FETCH ct.expenseType JOIN FETCH ct.recordedBy " +
+           "WHERE dc.id = :dailyCashId ORDER BY ct.createdAt DESC")
+    List<CashTransaction> findWithDetailsByDailyCashId(@Param("dailyCashId") Long dailyCashId);
+    /**
+     * Transactions of every day of a shop in a date range, fetched like findWithDetailsByDailyCashId
+     */
+    @Query("SELECT ct FROM CashTransaction ct JOIN FETCH ct.dailyCash dc JOIN FETCH dc.shop " +
+           "LEFT JOIN FETCH ct.expenseType JOIN FETCH ct.recordedBy " +
+           "WHERE dc.shop.id = :shopId AND dc.businessDate BETWEEN :startDate AND :endDate ORDER BY ct.createdAt DESC")
+    List<CashTransaction> findWithDetailsByShopIdAndBusinessDateBetween(
+            @Param("shopId") Long shopId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+    /**
+     * Transactions of every shop's days in a date range, with the day fetched for grouping
+     */
+    @Query("SELECT ct FROM CashTransaction ct JOIN FETCH ct.dailyCash dc JOIN FETCH dc.shop " +
+           "LEFT JOIN FETCH ct.expenseType JOIN FETCH ct.recordedBy " +
+           "WHERE dc.businessDate BETWEEN :startDate AND :endDate")
+    List<CashTransaction> findWithDetailsByBusinessDateBetween(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+    /**
+     * Per-day transaction totals for every day in a date range, for set-based summary recomputation
+     * Row layout: dailyCashId, expenseTotal, expenseCount, saleCount
+     */
+    @Query("SELECT ct.dailyCash.id, COALESCE(SUM(CASE WHEN ct.type = 'EXPENSE' THEN ct.amount ELSE 0 END), 0), " +
+           "SUM(CASE WHEN ct.type = 'EXPENSE' THEN 1 ELSE 0 END), SUM(CASE WHEN ct.type = 'SALE' THEN 1 ELSE 0 END) " +
+           "FROM CashTransaction ct WHERE ct.dailyCash.businessDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY ct.dailyCash.id")
+    List<Object[]> sumByDailyCashForBusinessDateBetween(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
     // Expense Report Queries
     @Query("SELECT ct FROM CashTransaction ct WHERE ct.type = 'EXPENSE' AND ct.createdAt >= :startDate AND ct.createdAt < :endDate")
     List<CashTransaction> findExpensesByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
@@ -55,4 +96,36 @@ public interface CashTransactionRepository extends JpaRepository<CashTransaction
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate
     );
-}
\ No newline at end of file
+    // Grouped expense totals for reporting - one row per shop / expense type / business date
+    @Query("SELECT new com.oss.model.ExpenseAggregate(" +
+           "s.id, s.code, s.name, et.id, et.name, dc.businessDate, SUM(ct.amount), COUNT(ct)) " +
+           "FROM CashTransaction ct " +
+           "JOIN ct.dailyCash dc " +
+           "JOIN dc.shop s " +
+           "LEFT JOIN ct.expenseType et " +
+           "WHERE ct.type = 'EXPENSE' " +
+           "AND dc.businessDate >= :startDate " +
+           "AND dc.businessDate <= :endDate " +
+           "GROUP BY s.id, s.code, s.name, et.id, et.name, dc.businessDate")
+    List<ExpenseAggregate> aggregateExpensesByBusinessDateRange(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+    // Expense line items for report exports - streamed from a cursor, scalar rows only
+    // Row layout: businessDate, shopName, expenseTypeName, amount, description, recordedByName, createdAt
+    @Query("SELECT dc.businessDate, s.name, et.name, ct.amount, ct.description, u.name, ct.createdAt " +
+           "FROM CashTransaction ct " +
+           "JOIN ct.dailyCash dc " +
+           "JOIN dc.shop s " +
+           "LEFT JOIN ct.expenseType et " +
+           "LEFT JOIN ct.recordedBy u " +
+           "WHERE ct.type = 'EXPENSE' " +
+           "AND dc.businessDate >= :startDate " +
+           "AND dc.businessDate <= :endDate " +
+           "ORDER BY dc.businessDate, ct.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    Stream<Object[]> streamExpenseRowsByBusinessDateRange(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+}
@@ -0,0 +1,30 @@
+package com.oss.repository;
+import com.oss.model.CreditBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+@Repository
+public interface CreditBalanceRepository extends JpaRepository<CreditBalance, Long> {
+    Optional<CreditBalance> findByUserId(Long userId);
+    /**
+     * Add signed changes to a user's balance in place, creating the row on the user's first credit
+     * A single INSERT ... ON CONFLICT on ux_credit_balances_user, so concurrent first credits cannot both insert
+     */
+    @Modifying
+    @Query(value = "INSERT INTO credit_balances (user_id, total_amount, paid_amount, unpaid_amount, credit_count, unpaid_count, updated_at) " +
+                   "VALUES (:userId, :amount, :paid, :amount - :paid, :count, :unpaidCount, :now) " +
+                   "ON CONFLICT (user_id) DO UPDATE SET total_amount = total_amount + excluded.total_amount, " +
+                   "paid_amount = paid_amount + excluded.paid_amount, unpaid_amount = unpaid_amount + excluded.unpaid_amount, " +
+                   "credit_count = credit_count + excluded.credit_count, unpaid_count = unpaid_count + excluded.unpaid_count, " +
+                   "updated_at = excluded.updated_at",
+           nativeQuery = true)
+    int applyDelta(@Param("userId") Long userId,
+                   @Param("amount") double amount,
+                   @Param("paid") double paid,
+                   @Param("count") int count,
+                   @Param("unpaidCount") int unpaidCount,
+                   @Param("now") long now);
+}
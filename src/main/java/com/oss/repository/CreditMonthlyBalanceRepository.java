@@ -0,0 +1,38 @@
+package com.oss.repository;
+import com.oss.model.CreditMonthlyBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+@Repository
+public interface CreditMonthlyBalanceRepository extends JpaRepository<CreditMonthlyBalance, Long> {
+    Optional<CreditMonthlyBalance> findByUserIdAndYearAndMonth(Long userId, Integer year, Integer month);
+    /**
+     * Every user with credits in the month, with the month's credit total, for a payroll run
+     * Row layout: user, totalAmount
+     */
+    @Query("SELECT u, mb.totalAmount FROM CreditMonthlyBalance mb, User u " +
+           "WHERE u.id = mb.userId AND mb.year = :year AND mb.month = :month")
+    List<Object[]> findUsersWithTotalByYearAndMonth(@Param("year") int year, @Param("month") int month);
+    /**
+     * Add signed changes to a user's month in place, creating the row on the month's first credit,
+     * like CreditBalanceRepository.applyDelta
+     */
+    @Modifying
+    @Query(value = "INSERT INTO credit_monthly_balances (user_id, year, month, total_amount, paid_amount, unpaid_amount, credit_count, updated_at) " +
+                   "VALUES (:userId, :year, :month, :amount, :paid, :amount - :paid, :count, :now) " +
+                   "ON CONFLICT (user_id, year, month) DO UPDATE SET total_amount = total_amount + excluded.total_amount, " +
+                   "paid_amount = paid_amount + excluded.paid_amount, unpaid_amount = unpaid_amount + excluded.unpaid_amount, " +
+                   "credit_count = credit_count + excluded.credit_count, updated_at = excluded.updated_at",
+           nativeQuery = true)
+    int applyDelta(@Param("userId") Long userId,
+                   @Param("year") int year,
+                   @Param("month") int month,
+                   @Param("amount") double amount,
+                   @Param("paid") double paid,
+                   @Param("count") int count,
+                   @Param("now") long now);
+}
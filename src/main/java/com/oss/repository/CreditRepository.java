@@ -2,19 +2,54 @@ package com.oss.repository;
 import com.oss.model.Credit;
 import com.oss.model.Shop;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 @Repository
-public interface CreditRepository extends JpaRepository<Credit, Long> {
+public interface CreditRepository extends JpaRepository<Credit, Long>, CreditRepositoryCustom {
     List<Credit> findAllByOrderByCreatedAtDesc();
     List<Credit> findByIsPaidOrderByCreatedAtDesc(Boolean isPaid);
     @Query("SELECT COALESCE(SUM(c.amount), 0) FROM Credit c WHERE c.isPaid = false")
     Double sumUnpaidCredits();
     @Query("SELECT COUNT(c) FROM Credit c WHERE c.isPaid = false")
     Long countUnpaidCredits();
+    // Unpaid totals per staff member, keyed by user id so staff sharing a name stay separate
+    // Row layout: userId, userName, totalUnpaid, count
+    @Query("SELECT u.id, u.name, COALESCE(SUM(c.amount), 0), COUNT(c) FROM Credit c JOIN c.user u " +
+           "WHERE c.isPaid = false GROUP BY u.id, u.name ORDER BY u.name, u.id")
+    List<Object[]> sumUnpaidGroupedByUser();
+    // Unpaid credits among the given ids, as rows for a bulk settlement
+    // Row layout: id, userId, transactionDate, amount
+    @Query("SELECT c.id, c.user.id, c.transactionDate, c.amount FROM Credit c WHERE c.id IN :ids AND c.isPaid = false")
+    List<Object[]> findUnpaidRowsByIds(@Param("ids") Collection<Long> ids);
+    // Unpaid credits of one user (null = every user) in a transaction date range, as rows for a bulk settlement
+    // Row layout: id, userId, transactionDate, amount
+    @Query("SELECT c.id, c.user.id, c.transactionDate, c.amount FROM Credit c WHERE c.isPaid = false " +
+           "AND (:userId IS NULL OR c.user.id = :userId) " +
+           "AND c.transactionDate >= :startDate AND c.transactionDate <= :endDate")
+    List<Object[]> findUnpaidRowsByUserAndDateRange(
+            @Param("userId") Long userId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+    // Mark the given credits paid in one statement; already paid ones are left alone
+    @Modifying
+    @Query("UPDATE Credit c SET c.isPaid = true WHERE c.id IN :ids AND c.isPaid = false")
+    int markPaidByIds(@Param("ids") Collection<Long> ids);
+    // Mark the unpaid credits of one user (null = every user) in a transaction date range paid in one statement
+    @Modifying
+    @Query("UPDATE Credit c SET c.isPaid = true WHERE c.isPaid = false " +
+           "AND (:userId IS NULL OR c.user.id = :userId) " +
+           "AND c.transactionDate >= :startDate AND c.transactionDate <= :endDate")
+    int markPaidByUserAndDateRange(
+            @Param("userId") Long userId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
     // Find credits by department and date (for sales calculation)
     @Query("SELECT c FROM Credit c WHERE c.department = :department AND c.transactionDate = :date")
     List<Credit> findByDepartmentAndTransactionDate(
@@ -41,13 +76,38 @@ public interface CreditRepository extends JpaRepository<Credit, Long> {
     );
     // Find credits by shop code (department) and date
     // Note: transaction_date is stored as LocalDate in database
-    @Query("SELECT c FROM Credit c WHERE c.department = :shopCode " +
+    @Query("SELECT c FROM Credit c JOIN FETCH c.user LEFT JOIN FETCH c.shop WHERE c.department = :shopCode " +
            "AND c.transactionDate = :date " +
            "ORDER BY c.createdAt DESC")
     List<Credit> findByShopCodeAndTransactionDate(
             @Param("shopCode") String shopCode,
             @Param("date") LocalDate date
     );
+    // Find credits by shop code (department) over a date range
+    @Query("SELECT c FROM Credit c JOIN FETCH c.user LEFT JOIN FETCH c.shop WHERE c.department = :shopCode " +
+           "AND c.transactionDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY c.createdAt DESC")
+    List<Credit> findByShopCodeAndTransactionDateBetween(
+            @Param("shopCode") String shopCode,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+    // Find credits of every shop over a date range (credits without a shop are skipped)
+    @Query("SELECT c FROM Credit c JOIN FETCH c.user JOIN FETCH c.shop " +
+           "WHERE c.transactionDate BETWEEN :startDate AND :endDate")
+    List<Credit> findWithShopByTransactionDateBetween(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+    // Credit totals per shop and day over a date range (credits without a shop are skipped)
+    // Row layout: shopId, transactionDate, total, count
+    @Query("SELECT c.shop.id, c.transactionDate, COALESCE(SUM(c.amount), 0), COUNT(c) FROM Credit c " +
+           "WHERE c.shop IS NOT NULL AND c.transactionDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY c.shop.id, c.transactionDate")
+    List<Object[]> sumByShopAndTransactionDateBetween(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
     // Sum credits by shop code (department) and date
     @Query("SELECT COALESCE(SUM(c.amount), 0) FROM Credit c " +
            "WHERE c.department = :shopCode " +
@@ -112,6 +172,13 @@ public interface CreditRepository extends JpaRepository<Credit, Long> {
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate
     );
+    // Credit totals per user and transaction date, used to build and check the credit ledger
+    // Row layout: userId, transactionDate, total, paidTotal, count, unpaidCount
+    @Query("SELECT c.user.id, c.transactionDate, COALESCE(SUM(c.amount), 0), " +
+           "COALESCE(SUM(CASE WHEN c.isPaid = true THEN c.amount ELSE 0.0 END), 0), COUNT(c), " +
+           "COALESCE(SUM(CASE WHEN c.isPaid = false THEN 1 ELSE 0 END), 0) " +
+           "FROM Credit c GROUP BY c.user.id, c.transactionDate")
+    List<Object[]> sumGroupedByUserAndTransactionDate();
     // Sum credits for a specific date (for daily salary calculation)
     @Query("SELECT COALESCE(SUM(c.amount), 0) FROM Credit c WHERE c.user.id = :userId AND c.transactionDate = :date")
     Double sumCreditsByUserIdAndDate(
@@ -0,0 +1,17 @@
+package com.oss.repository;
+import com.oss.dto.CreditFilter;
+import com.oss.dto.OSD_CreditDTO;
+import java.time.LocalDateTime;
+import java.util.List;
+/**
+ * Credit listing queries whose WHERE clause depends on which filters are set
+ */
+public interface CreditRepositoryCustom {
+    /**
+     * Credits matching the filter, newest first by (createdAt, id), as DTO rows
+     * @param afterCreatedAt createdAt of the last row of the previous page, null for the first page
+     * @param afterId        id of the last row of the previous page, null for the first page
+     * @param limit          maximum number of rows, null for all
+     */
+    List<OSD_CreditDTO> findPage(CreditFilter filter, LocalDateTime afterCreatedAt, Long afterId, Integer limit);
+}
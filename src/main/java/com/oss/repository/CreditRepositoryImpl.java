@@ -0,0 +1,64 @@
+package com.oss.repository;
+import com.oss.dto.CreditFilter;
+import com.oss.dto.OSD_CreditDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Only the predicates of the filters that are set are added, so each query can use the
+ * matching (column, created_at, id) index and a page costs the same wherever it starts
+ */
+public class CreditRepositoryImpl implements CreditRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OSD_CreditDTO> findPage(CreditFilter filter, LocalDateTime afterCreatedAt, Long afterId, Integer limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.oss.dto.OSD_CreditDTO(c.id, u.id, u.name, c.department, s.id, s.name, " +
+                "c.amount, c.reason, c.isPaid, c.transactionDate, c.createdAt) " +
+                "FROM Credit c JOIN c.user u LEFT JOIN c.shop s WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        if (filter.getUserId() != null) {
+            jpql.append(" AND c.user.id = :userId");
+            params.put("userId", filter.getUserId());
+        }
+        if (filter.getShopId() != null) {
+            jpql.append(" AND c.shop.id = :shopId");
+            params.put("shopId", filter.getShopId());
+        }
+        if (filter.getDepartment() != null) {
+            jpql.append(" AND c.department = :department");
+            params.put("department", filter.getDepartment());
+        }
+        if (filter.getStartDate() != null) {
+            jpql.append(" AND c.transactionDate >= :startDate");
+            params.put("startDate", filter.getStartDate());
+        }
+        if (filter.getEndDate() != null) {
+            jpql.append(" AND c.transactionDate <= :endDate");
+            params.put("endDate", filter.getEndDate());
+        }
+        if (filter.getIsPaid() != null) {
+            jpql.append(" AND c.isPaid = :isPaid");
+            params.put("isPaid", filter.getIsPaid());
+        }
+        if (afterCreatedAt != null && afterId != null) {
+            // The first term bounds the index range scan, the second breaks ties on createdAt by id
+            jpql.append(" AND c.createdAt <= :afterCreatedAt AND (c.createdAt < :afterCreatedAt OR c.id < :afterId)");
+            params.put("afterCreatedAt", afterCreatedAt);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY c.createdAt DESC, c.id DESC");
+        TypedQuery<OSD_CreditDTO> query = entityManager.createQuery(jpql.toString(), OSD_CreditDTO.class);
+        params.forEach(query::setParameter);
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+}
@@ -1,23 +1,120 @@
 package com.oss.repository;
+import com.oss.config.LocalDateAttributeConverter;
 import com.oss.model.DailyCash;
 import com.oss.model.Shop;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 @Repository
 public interface DailyCashRepository extends JpaRepository<DailyCash, Long> {
+    LocalDateAttributeConverter DATE_CONVERTER = new LocalDateAttributeConverter();
     Optional<DailyCash> findByShopAndBusinessDate(Shop shop, LocalDate businessDate);
     Optional<DailyCash> findByShop_IdAndBusinessDate(Long shopId, LocalDate businessDate);
+    /**
+     * Day with its shop and closing user fetched in the same query
+     */
+    @Query("SELECT dc FROM DailyCash dc JOIN FETCH dc.shop s LEFT JOIN FETCH dc.closedBy " +
+           "WHERE s.id = :shopId AND dc.businessDate = :businessDate")
+    Optional<DailyCash> findWithShopByShopIdAndBusinessDate(
+        @Param("shopId") Long shopId,
+        @Param("businessDate") LocalDate businessDate
+    );
+    /**
+     * Days of a shop in a date range with shop and closing user fetched, oldest first
+     */
+    @Query("SELECT dc FROM DailyCash dc JOIN FETCH dc.shop s LEFT JOIN FETCH dc.closedBy " +
+           "WHERE s.id = :shopId AND dc.businessDate BETWEEN :startDate AND :endDate ORDER BY dc.businessDate")
+    List<DailyCash> findWithShopByShopIdAndBusinessDateBetween(
+        @Param("shopId") Long shopId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+    /**
+     * Days of a shop after a date, oldest first (page size 1 gives the next day)
+     */
+    @Query("SELECT dc FROM DailyCash dc JOIN FETCH dc.shop s " +
+           "WHERE s.id = :shopId AND dc.businessDate > :date ORDER BY dc.businessDate")
+    List<DailyCash> findByShopIdAndBusinessDateAfter(
+        @Param("shopId") Long shopId,
+        @Param("date") LocalDate date,
+        Pageable pageable
+    );
+    /**
+     * Closed days of all shops in a date range with shop and closing user fetched
+     */
+    @Query("SELECT dc FROM DailyCash dc JOIN FETCH dc.shop LEFT JOIN FETCH dc.closedBy " +
+           "WHERE dc.locked = true AND dc.businessDate BETWEEN :startDate AND :endDate ORDER BY dc.businessDate")
+    List<DailyCash> findLockedWithShopByBusinessDateBetween(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+    /**
+     * Open days of all shops in a date range with shop fetched
+     */
+    @Query("SELECT dc FROM DailyCash dc JOIN FETCH dc.shop " +
+           "WHERE dc.locked = false AND dc.businessDate BETWEEN :startDate AND :endDate ORDER BY dc.businessDate")
+    List<DailyCash> findUnlockedWithShopByBusinessDateBetween(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+    /**
+     * Open days of one shop in a date range with shop fetched
+     */
+    @Query("SELECT dc FROM DailyCash dc JOIN FETCH dc.shop s " +
+           "WHERE s.id = :shopId AND dc.locked = false AND dc.businessDate BETWEEN :startDate AND :endDate ORDER BY dc.businessDate")
+    List<DailyCash> findUnlockedWithShopByShopIdAndBusinessDateBetween(
+        @Param("shopId") Long shopId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+    /**
+     * First and last business date on record
+     * Row layout: minDate, maxDate (both null when there are no days)
+     */
+    @Query("SELECT MIN(dc.businessDate), MAX(dc.businessDate) FROM DailyCash dc")
+    List<Object[]> findBusinessDateRange();
     boolean existsByShopAndBusinessDate(Shop shop, LocalDate businessDate);
     boolean existsByShop_IdAndBusinessDate(Long shopId, LocalDate businessDate);
+    /**
+     * Create the day unless the (shop_id, business_date) unique index already has it
+     * @return 1 if the row was inserted, 0 if it already existed
+     */
+    default int insertIfAbsent(Long shopId, LocalDate businessDate, Double openingCash) {
+        return insertOrIgnore(shopId, DATE_CONVERTER.convertToDatabaseColumn(businessDate), openingCash);
+    }
+    // business_date is passed as stored (epoch millis), native queries bypass the attribute converter
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT OR IGNORE INTO daily_cash (shop_id, business_date, opening_cash, opening_confirmed, locked) " +
+                   "VALUES (:shopId, :businessDate, :openingCash, 0, 0)", nativeQuery = true)
+    int insertOrIgnore(
+        @Param("shopId") Long shopId,
+        @Param("businessDate") Long businessDate,
+        @Param("openingCash") Double openingCash
+    );
     @Query("SELECT dc FROM DailyCash dc WHERE dc.shop = :shop ORDER BY dc.businessDate DESC")
     List<DailyCash> findLatestByShop(@Param("shop") Shop shop);
     @Query("SELECT dc FROM DailyCash dc WHERE dc.shop.id = :shopId ORDER BY dc.businessDate DESC")
     List<DailyCash> findLatestByShopId(@Param("shopId") Long shopId);
+    /**
+     * Latest daily cash row of every shop in one query
+     * The MAX per shop is resolved on the (shop_id, business_date) unique index, so the cost
+     * does not grow with history
+     * Row layout: shopId, businessDate, closingCash
+     */
+    @Query("SELECT dc.shop.id, dc.businessDate, dc.closingCash FROM Shop s JOIN DailyCash dc ON dc.shop = s " +
+           "WHERE dc.businessDate = (SELECT MAX(d2.businessDate) FROM DailyCash d2 WHERE d2.shop = s)")
+    List<Object[]> findLatestRowPerShop();
     @Query("SELECT dc FROM DailyCash dc WHERE dc.shop = :shop AND dc.businessDate < :date ORDER BY dc.businessDate DESC")
     List<DailyCash> findPreviousByShopAndDate(@Param("shop") Shop shop, @Param("date") LocalDate date);
     /**
@@ -66,4 +163,17 @@ public interface DailyCashRepository extends JpaRepository<DailyCash, Long> {
      * Used for calculating revenue and profit over a date range
      */
     List<DailyCash> findByBusinessDateBetween(LocalDate startDate, LocalDate endDate);
-}
\ No newline at end of file
+    /**
+     * Closed days with a closing balance, streamed for bank deposit exports
+     * Row layout: businessDate, shopName, closingCash
+     */
+    @Query("SELECT dc.businessDate, dc.shop.name, dc.closingCash FROM DailyCash dc " +
+           "WHERE dc.businessDate BETWEEN :startDate AND :endDate " +
+           "AND dc.locked = true AND dc.closingCash IS NOT NULL " +
+           "ORDER BY dc.businessDate, dc.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    Stream<Object[]> streamBankDepositRows(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+}
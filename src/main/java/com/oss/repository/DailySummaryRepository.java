@@ -1,20 +1,46 @@
 package com.oss.repository;
 import com.oss.model.DailySummary;
 import com.oss.model.Shop;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 @Repository
-public interface DailySummaryRepository extends JpaRepository<DailySummary, Long> {
+public interface DailySummaryRepository extends JpaRepository<DailySummary, Long>, DailySummaryRepositoryCustom {
     /**
      * Find summary for a specific shop and date
      */
     Optional<DailySummary> findByShopAndBusinessDate(Shop shop, LocalDate businessDate);
     Optional<DailySummary> findByShop_IdAndBusinessDate(Long shopId, LocalDate businessDate);
+    /**
+     * Add signed changes to the stored summary of a day in place
+     * Revenue moves with expenses and net sales with expenses minus credits; profit does not change
+     * calculatedAt always moves forward, even within the same millisecond, since the backfill uses it to spot changed rows
+     * Pending changes are flushed first; a summary already loaded is stale afterwards until refreshLoaded is called
+     * @return 1 if the day has a summary, 0 if not
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DailySummary ds SET ds.totalExpenses = ds.totalExpenses + :expenses, " +
+           "ds.expenseCount = ds.expenseCount + :expenseCount, ds.manualSaleCount = ds.manualSaleCount + :saleCount, " +
+           "ds.totalCredits = ds.totalCredits + :credits, ds.creditCount = ds.creditCount + :creditCount, " +
+           "ds.totalRevenue = ds.totalRevenue + :expenses, ds.netSales = ds.netSales + :expenses - :credits, " +
+           "ds.calculatedAt = CASE WHEN ds.calculatedAt >= :now THEN ds.calculatedAt + 1 ELSE :now END " +
+           "WHERE ds.shop.id = :shopId AND ds.businessDate = :businessDate")
+    int applyDelta(@Param("shopId") Long shopId,
+                   @Param("businessDate") LocalDate businessDate,
+                   @Param("expenses") double expenses,
+                   @Param("expenseCount") int expenseCount,
+                   @Param("saleCount") int saleCount,
+                   @Param("credits") double credits,
+                   @Param("creditCount") int creditCount,
+                   @Param("now") long now);
     /**
      * Find all summaries for a specific date (all shops)
      */
@@ -80,4 +106,19 @@ public interface DailySummaryRepository extends JpaRepository<DailySummary, Long
      */
     @Query("SELECT ds FROM DailySummary ds WHERE ds.shop.id = :shopId ORDER BY ds.businessDate DESC LIMIT 1")
     Optional<DailySummary> findLatestByShopId(@Param("shopId") Long shopId);
-}
\ No newline at end of file
+    /**
+     * Summary rows streamed for report exports, optionally limited to one shop (null = all shops)
+     * Row layout: businessDate, shopName, openingCash, closingCash, totalRevenue, totalExpenses, totalCredits,
+     * netSales, profit, expenseCount, creditCount, manualSaleCount, staffCount, totalAttendanceHours, isClosed
+     */
+    @Query("SELECT ds.businessDate, ds.shop.name, ds.openingCash, ds.closingCash, ds.totalRevenue, ds.totalExpenses, " +
+           "ds.totalCredits, ds.netSales, ds.profit, ds.expenseCount, ds.creditCount, ds.manualSaleCount, " +
+           "ds.staffCount, ds.totalAttendanceHours, ds.isClosed " +
+           "FROM DailySummary ds WHERE (:shopId IS NULL OR ds.shop.id = :shopId) " +
+           "AND ds.businessDate BETWEEN :startDate AND :endDate ORDER BY ds.businessDate, ds.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    Stream<Object[]> streamRowsByShopAndDateRange(
+            @Param("shopId") Long shopId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+}
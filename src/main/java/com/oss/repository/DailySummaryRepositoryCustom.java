@@ -0,0 +1,12 @@
+package com.oss.repository;
+import java.time.LocalDate;
+/**
+ * Keeps summaries already loaded in the persistence context in step with in-place updates
+ */
+public interface DailySummaryRepositoryCustom {
+    /**
+     * Reload the summary of a shop and date from the database if it is loaded in the current persistence context
+     * Other loaded entities stay attached, unlike clearing the whole context after the update
+     */
+    void refreshLoaded(Long shopId, LocalDate businessDate);
+}
@@ -0,0 +1,30 @@
+package com.oss.repository;
+import com.oss.model.DailySummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+/**
+ * Looks through the entities already in the persistence context, so nothing is queried when the summary was never loaded
+ */
+public class DailySummaryRepositoryImpl implements DailySummaryRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void refreshLoaded(Long shopId, LocalDate businessDate) {
+        List<DailySummary> loaded = new ArrayList<>();
+        for (Map.Entry<Object, ?> entry : entityManager.unwrap(SessionImplementor.class)
+                .getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof DailySummary summary
+                    && summary.getShop() != null && shopId.equals(summary.getShop().getId())
+                    && businessDate.equals(summary.getBusinessDate())) {
+                loaded.add(summary);
+            }
+        }
+        loaded.forEach(entityManager::refresh);
+    }
+}
@@ -0,0 +1,113 @@
+package com.oss.repository;
+import com.oss.config.LocalDateAttributeConverter;
+import com.oss.model.MonthlySummary;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+@Repository
+public interface MonthlySummaryRepository extends JpaRepository<MonthlySummary, Long> {
+    LocalDateAttributeConverter DATE_CONVERTER = new LocalDateAttributeConverter();
+    Optional<MonthlySummary> findByShop_IdAndYearAndMonth(Long shopId, Integer year, Integer month);
+    /**
+     * Add the change of one or more daily summaries to their month, creating the month on its first day
+     * A single INSERT ... ON CONFLICT DO UPDATE against ux_monthly_summaries_shop_month, so concurrent writers
+     * each add their own delta instead of overwriting a month they read earlier
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO monthly_summaries (shop_id, year, month, total_revenue, total_expenses, total_credits, " +
+                   "net_sales, profit, expense_count, credit_count, manual_sale_count, day_count, updated_at) " +
+                   "VALUES (:shopId, :year, :month, :revenue, :expenses, :credits, :netSales, :profit, " +
+                   ":expenseCount, :creditCount, :saleCount, :dayCount, :now) " +
+                   "ON CONFLICT (shop_id, year, month) DO UPDATE SET " +
+                   "total_revenue = total_revenue + excluded.total_revenue, total_expenses = total_expenses + excluded.total_expenses, " +
+                   "total_credits = total_credits + excluded.total_credits, net_sales = net_sales + excluded.net_sales, " +
+                   "profit = profit + excluded.profit, expense_count = expense_count + excluded.expense_count, " +
+                   "credit_count = credit_count + excluded.credit_count, manual_sale_count = manual_sale_count + excluded.manual_sale_count, " +
+                   "day_count = day_count + excluded.day_count, updated_at = excluded.updated_at", nativeQuery = true)
+    int addDayDelta(@Param("shopId") Long shopId,
+                    @Param("year") int year,
+                    @Param("month") int month,
+                    @Param("revenue") double revenue,
+                    @Param("expenses") double expenses,
+                    @Param("credits") double credits,
+                    @Param("netSales") double netSales,
+                    @Param("profit") double profit,
+                    @Param("expenseCount") int expenseCount,
+                    @Param("creditCount") int creditCount,
+                    @Param("saleCount") int saleCount,
+                    @Param("dayCount") int dayCount,
+                    @Param("now") long now);
+    /**
+     * Write the rows of one calendar month for every shop from its daily summaries, grouped in SQL
+     * @return number of monthly rows written
+     */
+    default int insertMonthFromDaily(YearMonth month, long now) {
+        return insertMonthFromDailyBetween(month.getYear(), month.getMonthValue(),
+                DATE_CONVERTER.convertToDatabaseColumn(month.atDay(1)),
+                DATE_CONVERTER.convertToDatabaseColumn(month.atEndOfMonth()), now);
+    }
+    // business_date is passed as stored (epoch millis), native queries bypass the attribute converter
+    @Modifying
+    @Query(value = "INSERT INTO monthly_summaries (shop_id, year, month, total_revenue, total_expenses, total_credits, " +
+                   "net_sales, profit, expense_count, credit_count, manual_sale_count, day_count, updated_at) " +
+                   "SELECT shop_id, :year, :month, COALESCE(SUM(total_revenue), 0), COALESCE(SUM(total_expenses), 0), " +
+                   "COALESCE(SUM(total_credits), 0), COALESCE(SUM(net_sales), 0), COALESCE(SUM(profit), 0), " +
+                   "COALESCE(SUM(expense_count), 0), COALESCE(SUM(credit_count), 0), COALESCE(SUM(manual_sale_count), 0), " +
+                   "COUNT(*), :now FROM daily_summaries WHERE business_date BETWEEN :startDate AND :endDate " +
+                   "GROUP BY shop_id", nativeQuery = true)
+    int insertMonthFromDailyBetween(@Param("year") int year,
+                                    @Param("month") int month,
+                                    @Param("startDate") Long startDate,
+                                    @Param("endDate") Long endDate,
+                                    @Param("now") long now);
+    /**
+     * Find rollups for all shops between two years (inclusive)
+     */
+    @Query("SELECT ms FROM MonthlySummary ms JOIN FETCH ms.shop WHERE ms.year BETWEEN :startYear AND :endYear ORDER BY ms.year, ms.month")
+    List<MonthlySummary> findByYearBetween(
+            @Param("startYear") Integer startYear,
+            @Param("endYear") Integer endYear);
+    /**
+     * Find rollups for a shop between two years (inclusive)
+     */
+    @Query("SELECT ms FROM MonthlySummary ms JOIN FETCH ms.shop s WHERE s.id = :shopId AND ms.year BETWEEN :startYear AND :endYear ORDER BY ms.year, ms.month")
+    List<MonthlySummary> findByShopIdAndYearBetween(
+            @Param("shopId") Long shopId,
+            @Param("startYear") Integer startYear,
+            @Param("endYear") Integer endYear);
+    /**
+     * All-time totals across every rollup row
+     * Row layout: totalRevenue, totalExpenses, profit
+     */
+    @Query("SELECT COALESCE(SUM(ms.totalRevenue), 0), COALESCE(SUM(ms.totalExpenses), 0), COALESCE(SUM(ms.profit), 0) " +
+           "FROM MonthlySummary ms")
+    List<Object[]> sumAllTotals();
+    /**
+     * First and last business date of the daily summaries, used to rebuild the rollup table
+     * Row layout: minDate, maxDate (both null when there are no summaries)
+     */
+    @Query("SELECT MIN(ds.businessDate), MAX(ds.businessDate) FROM DailySummary ds")
+    List<Object[]> findDailyDateRange();
+    /**
+     * Rollup rows streamed for report exports, optionally limited to one shop (null = all shops)
+     * Row layout: year, month, shopName, totalRevenue, totalExpenses, totalCredits, netSales, profit,
+     * expenseCount, creditCount, manualSaleCount, dayCount
+     */
+    @Query("SELECT ms.year, ms.month, ms.shop.name, ms.totalRevenue, ms.totalExpenses, ms.totalCredits, ms.netSales, " +
+           "ms.profit, ms.expenseCount, ms.creditCount, ms.manualSaleCount, ms.dayCount " +
+           "FROM MonthlySummary ms WHERE (:shopId IS NULL OR ms.shop.id = :shopId) " +
+           "AND ms.year BETWEEN :startYear AND :endYear ORDER BY ms.year, ms.month, ms.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    Stream<Object[]> streamRowsByShopAndYearRange(
+            @Param("shopId") Long shopId,
+            @Param("startYear") Integer startYear,
+            @Param("endYear") Integer endYear);
+}
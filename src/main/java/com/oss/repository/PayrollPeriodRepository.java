@@ -0,0 +1,12 @@
+package com.oss.repository;
+import com.oss.model.PayrollPeriod;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+@Repository
+public interface PayrollPeriodRepository extends JpaRepository<PayrollPeriod, Long> {
+    Optional<PayrollPeriod> findByYearAndMonth(Integer year, Integer month);
+    boolean existsByYearAndMonth(Integer year, Integer month);
+    List<PayrollPeriod> findAllByOrderByYearDescMonthDesc();
+}
@@ -0,0 +1,11 @@
+package com.oss.repository;
+import com.oss.model.PayrollSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+@Repository
+public interface PayrollSnapshotRepository extends JpaRepository<PayrollSnapshot, Long> {
+    Optional<PayrollSnapshot> findByYearAndMonthAndUserId(Integer year, Integer month, Long userId);
+    List<PayrollSnapshot> findByYearAndMonth(Integer year, Integer month);
+}
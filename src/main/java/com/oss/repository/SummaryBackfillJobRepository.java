@@ -0,0 +1,12 @@
+package com.oss.repository;
+import com.oss.model.BackfillJobStatus;
+import com.oss.model.SummaryBackfillJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.Optional;
+@Repository
+public interface SummaryBackfillJobRepository extends JpaRepository<SummaryBackfillJob, Long> {
+    List<SummaryBackfillJob> findByStatusOrderById(BackfillJobStatus status);
+    Optional<SummaryBackfillJob> findFirstByOrderByIdDesc();
+}
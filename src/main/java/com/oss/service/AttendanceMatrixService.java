@@ -0,0 +1,139 @@
+package com.oss.service;
+import com.oss.dto.AttendanceMatrixDTO;
+import com.oss.dto.AttendanceMatrixRowDTO;
+import com.oss.repository.AttendanceRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Base64;
+import java.util.List;
+/**
+ * Attendance Matrix Service - Builds the staff x days roster grid for a date range
+ * The range is read in one projected query, and each staff member's days are kept as bitsets,
+ * so a quarter for the whole staff is a few bytes per person
+ */
+@Service
+@Transactional(readOnly = true)
+public class AttendanceMatrixService {
+    public static final int MAX_DAYS = 366;
+    private static final int WORKED = 1;
+    private static final int NOT_WORKED = 2;
+    private static final int OVERTIME = 4;
+    private static final int DEDUCTION = 8;
+
+    private final AttendanceRepository attendanceRepository;
+
+    public AttendanceMatrixService(AttendanceRepository attendanceRepository) {
+        this.attendanceRepository = attendanceRepository;
+    }
+
+    /**
+     * @param dense true for base64 bitsets per row, false for one code per day
+     */
+    public AttendanceMatrixDTO getMatrix(LocalDate startDate, LocalDate endDate, boolean dense) {
+        if (startDate.isAfter(endDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Start date must not be after end date");
+        }
+        int dayCount = (int) ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (dayCount > MAX_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Range must not exceed " + MAX_DAYS + " days");
+        }
+        List<AttendanceMatrixRowDTO> rows = new ArrayList<>();
+        Cells cells = null;
+        for (Object[] row : attendanceRepository.findMatrixCellsByWorkDateBetween(startDate, endDate)) {
+            Long userId = (Long) row[0];
+            if (cells == null || !cells.row.getUserId().equals(userId)) {
+                if (cells != null) {
+                    rows.add(cells.finish(dense, dayCount));
+                }
+                cells = new Cells(AttendanceMatrixRowDTO.builder()
+                        .userId(userId)
+                        .name((String) row[1])
+                        .email((String) row[2])
+                        .build());
+            }
+            cells.add((int) ChronoUnit.DAYS.between(startDate, (LocalDate) row[3]),
+                    (Boolean) row[4], value((Double) row[5]), value((Double) row[6]));
+        }
+        if (cells != null) {
+            rows.add(cells.finish(dense, dayCount));
+        }
+        return AttendanceMatrixDTO.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .dayCount(dayCount)
+                .encoding(dense ? "dense" : "json")
+                .rows(rows)
+                .build();
+    }
+
+    /**
+     * Day sets and totals of one staff member while their rows are read
+     */
+    private static final class Cells {
+        private final AttendanceMatrixRowDTO row;
+        private final BitSet worked = new BitSet();
+        private final BitSet notWorked = new BitSet();
+        private final BitSet overtime = new BitSet();
+        private final BitSet deduction = new BitSet();
+
+        private Cells(AttendanceMatrixRowDTO row) {
+            this.row = row;
+        }
+
+        /**
+         * @param isWorking null for a record without a working flag, counted in the total days only,
+         *                  as in the staff attendance report
+         */
+        private void add(int day, Boolean isWorking, double overtimeHours, double deductionHours) {
+            row.setTotalDays(row.getTotalDays() + 1);
+            if (Boolean.TRUE.equals(isWorking)) {
+                worked.set(day);
+                row.setWorkingDays(row.getWorkingDays() + 1);
+            } else if (Boolean.FALSE.equals(isWorking)) {
+                notWorked.set(day);
+                row.setNotWorkingDays(row.getNotWorkingDays() + 1);
+            }
+            if (overtimeHours > 0) {
+                overtime.set(day);
+            }
+            if (deductionHours > 0) {
+                deduction.set(day);
+            }
+            row.setTotalOvertimeHours(row.getTotalOvertimeHours() + overtimeHours);
+            row.setTotalDeductionHours(row.getTotalDeductionHours() + deductionHours);
+        }
+
+        private AttendanceMatrixRowDTO finish(boolean dense, int dayCount) {
+            if (dense) {
+                row.setWorked(encode(worked));
+                row.setNotWorked(encode(notWorked));
+                row.setOvertime(encode(overtime));
+                row.setDeduction(encode(deduction));
+            } else {
+                int[] days = new int[dayCount];
+                for (int day = 0; day < dayCount; day++) {
+                    // A day with both a working and a not working record shows as worked
+                    days[day] = (worked.get(day) ? WORKED : notWorked.get(day) ? NOT_WORKED : 0)
+                            | (overtime.get(day) ? OVERTIME : 0)
+                            | (deduction.get(day) ? DEDUCTION : 0);
+                }
+                row.setDays(days);
+            }
+            return row;
+        }
+
+        private static String encode(BitSet days) {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(days.toByteArray());
+        }
+    }
+
+    private static double value(Double d) {
+        return d != null ? d : 0.0;
+    }
+}
@@ -1,13 +1,15 @@
 package com.oss.service;
 import com.oss.config.WorkTimeConfig;
+import com.oss.dto.AttendanceFilter;
+import com.oss.dto.AttendancePageDTO;
+import com.oss.dto.PayrollEntryDTO;
 import com.oss.model.Attendance;
 import com.oss.model.AttendanceHistory;
 import com.oss.model.AttendanceStatus;
+import com.oss.model.StaffAttendanceHistory;
 import com.oss.model.User;
 import com.oss.repository.AttendanceRepository;
-import com.oss.repository.CreditRepository;
 import com.oss.repository.UserRepository;
-import jakarta.transaction.Transactional;
 import java.util.ArrayList;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -15,19 +17,24 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import java.nio.charset.StandardCharsets;
 import java.time.*;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class AttendanceService {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
     private final AttendanceRepository attendanceRepository;
-    private final CreditRepository creditRepository;
+    private final CreditLedgerService creditLedgerService;
+    private final PayrollService payrollService;
     private final UserRepository userRepository;
     private final AuditLogService auditLogService;
+    private final DailySummaryService dailySummaryService;
     private User getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null) {
@@ -43,9 +50,8 @@ public class AttendanceService {
     public Attendance getTodayAttendanceForCurrentUser() {
         ZoneId zone = WorkTimeConfig.SRI_LANKA;
         LocalDate today = LocalDate.now(zone);
-        // ✅ Get LATEST record to handle duplicates
         return attendanceRepository
-                .findLatestByUserAndWorkDate(getCurrentUser(), today)
+                .findByUserAndWorkDate(getCurrentUser(), today)
                 .orElse(null);
     }
     public Attendance checkIn(Instant manualTime) {
@@ -59,32 +65,14 @@ public class AttendanceService {
         ZoneId zone = timezone != null ? ZoneId.of(timezone) : WorkTimeConfig.DEFAULT_ZONE;
         LocalDate today = LocalDate.now(zone);
 
-        // Find or create today's attendance record - use the LATEST (bulletproof)
-        Optional<Attendance> existingOpt = attendanceRepository.findLatestByUserAndWorkDate(user, today);
-
-        Attendance attendance;
-        if (existingOpt.isPresent()) {
-            attendance = existingOpt.get();
-        } else {
-            attendance = new Attendance();
-            attendance.setUser(user);
-            attendance.setWorkDate(today);
-        }
-
         // Simple logic: User clicked YES
-        attendance.setIsWorking(true);  // ✅ SIMPLE FLAG
-        attendance.setStatus(AttendanceStatus.WORKING);  // For compatibility
-
-        // Save and return
-        return attendanceRepository.save(attendance);
+        return setStatus(user, today, AttendanceStatus.WORKING);
     }
     // Change checkOut to return Attendance instead of void
-    @Transactional
     public Attendance checkOut(Instant manualTime) {
         return checkOut(manualTime, null);
     }
 
-    @Transactional
     public Attendance checkOut(Instant manualTime, String timezone) {
         User user = getCurrentUser();
 
@@ -92,30 +80,14 @@ public class AttendanceService {
         ZoneId zone = timezone != null ? ZoneId.of(timezone) : WorkTimeConfig.DEFAULT_ZONE;
         LocalDate today = LocalDate.now(zone);
 
-        // ✅ BULLETPROOF: Find existing record first
-        Optional<Attendance> existingOpt = attendanceRepository.findLatestByUserAndWorkDate(user, today);
-
-        Attendance attendance;
-        if (existingOpt.isPresent()) {
-            attendance = existingOpt.get();
-        } else {
-            attendance = new Attendance();
-            attendance.setUser(user);
-            attendance.setWorkDate(today);
-        }
-
         // Update to NOT_WORKING status
-        attendance.setIsWorking(false);
-        attendance.setStatus(AttendanceStatus.NOT_WORKING);
-
-        return attendanceRepository.save(attendance);
+        return setStatus(user, today, AttendanceStatus.NOT_WORKING);
     }
 
     /**
      * Update today's attendance status
      * Used by mobile app to set WORKING or NOT_WORKING when user clicks YES/NO
      */
-    @Transactional
     public Attendance updateTodayStatus(String statusString) {
         User user = getCurrentUser();
         ZoneId zone = WorkTimeConfig.SRI_LANKA;
@@ -129,46 +101,37 @@ public class AttendanceService {
             throw new IllegalArgumentException("Invalid status. Must be: WORKING or NOT_WORKING");
         }
 
-        // ✅ BULLETPROOF: Find existing record first
-        Optional<Attendance> existingOpt = attendanceRepository.findLatestByUserAndWorkDate(user, today);
-
-        Attendance attendance;
-        if (existingOpt.isPresent()) {
-            attendance = existingOpt.get();
-        } else {
-            attendance = new Attendance();
-            attendance.setUser(user);
-            attendance.setWorkDate(today);
-        }
-
-        // Update status
-        attendance.setStatus(status);
-        attendance.setIsWorking(status != AttendanceStatus.NOT_WORKING);
-
-        Attendance saved = attendanceRepository.save(attendance);
+        return setStatus(user, today, status);
+    }
 
-        return saved;
+    /**
+     * Write the user's status for the day with one upsert, so concurrent requests never create a second row
+     * Not part of a wider transaction: the upsert commits on its own and the row is read back afterwards
+     */
+    private Attendance setStatus(User user, LocalDate day, AttendanceStatus status) {
+        attendanceRepository.upsertStatus(user.getId(), day, status);
+        // Staff counts of the day's open summaries change with attendance
+        dailySummaryService.evictLive(day);
+        return attendanceRepository.findByUserAndWorkDate(user, day)
+                .orElseThrow(() -> new RuntimeException("Attendance not found"));
     }
 
     public List<AttendanceHistory> getMyAttendanceHistory() {
         return attendanceRepository.getMyHistory(getCurrentUser());
     }
+    /**
+     * Every attendance record, newest first, in the map shape of GET /api/attendance/all
+     * Read as one projection joined with the users; prefer getAttendancePage for large histories
+     */
     public List<Map<String, Object>> getAllAttendance() {
         List<Map<String, Object>> res = new ArrayList<>();
-        for (Attendance a : attendanceRepository.findAll()) {
+        for (StaffAttendanceHistory a : attendanceRepository.findPage(new AttendanceFilter(), null, null, null)) {
             Map<String, Object> map = new HashMap<>();
-            // Handle potentially deleted users gracefully
-            try {
-                if (a.getUser() != null) {
-                    map.put("userId", a.getUser().getId());
-                    map.put("userName", a.getUser().getName());
-                    map.put("userEmail", a.getUser().getEmail());
-                } else {
-                    map.put("userId", null);
-                    map.put("userName", "[Deleted User]");
-                    map.put("userEmail", "");
-                }
-            } catch (Exception e) {
+            if (a.getUserId() != null) {
+                map.put("userId", a.getUserId());
+                map.put("userName", a.getUserName());
+                map.put("userEmail", a.getUserEmail());
+            } else {
                 // User was deleted but attendance record still references them
                 map.put("userId", null);
                 map.put("userName", "[Deleted User]");
@@ -185,37 +148,63 @@ public class AttendanceService {
         }
         return res;
     }
+    /**
+     * One page of attendance matching the filter, newest work date first
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param limit  page size, null for the default
+     */
+    public AttendancePageDTO getAttendancePage(AttendanceFilter filter, String cursor, Integer limit) {
+        int size = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        LocalDate afterWorkDate = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                afterWorkDate = LocalDate.parse(parts[0]);
+                afterId = Long.valueOf(parts[1]);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+        // One extra row tells whether another page follows
+        List<StaffAttendanceHistory> rows = attendanceRepository.findPage(filter, afterWorkDate, afterId, size + 1);
+        boolean hasMore = rows.size() > size;
+        List<StaffAttendanceHistory> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            StaffAttendanceHistory last = items.get(items.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getWorkDate() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return AttendancePageDTO.builder()
+                .items(new ArrayList<>(items))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
     // ===================== SALARY CALCULATION =====================
     public Map<String, Object> calculateTodaySalary() {
         User user = getCurrentUser();
         ZoneId zone = WorkTimeConfig.SRI_LANKA;
         LocalDate today = LocalDate.now(zone);
 
-        // ✅ Get LATEST record to handle duplicates
-        Attendance att = attendanceRepository.findLatestByUserAndWorkDate(user, today).orElse(null);
+        Attendance att = attendanceRepository.findByUserAndWorkDate(user, today).orElse(null);
 
-        double dailySalaryRate = user.getDailySalary() != null ? user.getDailySalary() : 0.0;
-        double hourlyRate = user.getHourlyRate() != null ? user.getHourlyRate() : 0.0;
-        double deductionRate = user.getDeductionRatePerHour() != null ? user.getDeductionRatePerHour() : 0.0;
+        double dailySalaryRate = SalaryRule.dailyRate(user);
+        double hourlyRate = SalaryRule.hourlyRate(user);
+        double deductionRate = SalaryRule.deductionRate(user);
         double totalSalary = 0.0;
         double hours = 0.0;
 
         List<Map<String, Object>> dailyBreakdown = new ArrayList<>();
 
-        if (att != null && att.getIsWorking() != null && att.getIsWorking()) {
+        if (SalaryRule.isWorkingDay(att)) {
             // User clicked YES - they worked today
-            hours = 8.0;  // Standard work day
-            totalSalary = dailySalaryRate;
-
-            // Add overtime
-            if (att.getOvertimeHours() != null && att.getOvertimeHours() > 0) {
-                totalSalary += att.getOvertimeHours() * hourlyRate;
-            }
-
-            // Subtract deduction
-            if (att.getDeductionHours() != null && att.getDeductionHours() > 0) {
-                totalSalary -= att.getDeductionHours() * deductionRate;
-            }
+            hours = SalaryRule.hours(att);
+            totalSalary = SalaryRule.daySalary(att, user);
 
             Map<String, Object> breakdown = new HashMap<>();
             breakdown.put("date", today.toString());
@@ -239,83 +228,29 @@ public class AttendanceService {
     }
     public Map<String, Object> calculateMyMonthlySalary(int year, int month) {
         User user = getCurrentUser();
-        LocalDate firstDay = LocalDate.of(year, month, 1);
-        LocalDate lastDay = firstDay.withDayOfMonth(firstDay.lengthOfMonth());
-
-        List<Attendance> attendances = attendanceRepository.findByUserAndWorkDateBetween(user, firstDay, lastDay);
-
-        double dailySalaryRate = user.getDailySalary() != null ? user.getDailySalary() : 0.0;
-        double hourlyRate = user.getHourlyRate() != null ? user.getHourlyRate() : 0.0;
-        double deductionRate = user.getDeductionRatePerHour() != null ? user.getDeductionRatePerHour() : 0.0;
-        double totalSalary = 0.0;
-        int daysWorked = 0;
-        final double MIN_HOURS = 6.0;
-
-        List<Map<String, Object>> dailyBreakdown = new ArrayList<>();
-
-        for (Attendance att : attendances) {
-            double hours = 0.0;
-            double daySalary = 0.0;
-            boolean qualified = false;
-
-            // ✅ SIMPLE LOGIC: Just check the isWorking flag
-            if (att.getIsWorking() != null && att.getIsWorking()) {
-                // User clicked YES - they worked
-                hours = 8.0;
-                qualified = true;
-                daySalary = dailySalaryRate;
-                daysWorked++;
-
-                // Add overtime if any
-                if (att.getOvertimeHours() != null && att.getOvertimeHours() > 0) {
-                    daySalary += att.getOvertimeHours() * hourlyRate;
-                }
-
-                // Deduct if any
-                if (att.getDeductionHours() != null && att.getDeductionHours() > 0) {
-                    daySalary -= att.getDeductionHours() * deductionRate;
-                }
-            } else {
-                // User clicked NO - they didn't work
-                hours = 0.0;
-                qualified = false;
-                daySalary = 0.0;
-            }
-
-            totalSalary += daySalary;
-
-            Map<String, Object> breakdown = new HashMap<>();
-            breakdown.put("date", att.getWorkDate().toString());
-            breakdown.put("hours", hours);
-            breakdown.put("salary", daySalary);
-            breakdown.put("overtimeHours", att.getOvertimeHours() != null ? att.getOvertimeHours() : 0.0);
-            breakdown.put("deductionHours", att.getDeductionHours() != null ? att.getDeductionHours() : 0.0);
-            breakdown.put("overtimeReason", att.getOvertimeReason());
-            breakdown.put("deductionReason", att.getDeductionReason());
-            breakdown.put("qualified", qualified);
-            breakdown.put("status", att.getStatus().name());
-            dailyBreakdown.add(breakdown);
+        // A closed month is served from its payroll snapshot instead of being recomputed
+        PayrollEntryDTO closed = payrollService.findClosedEntry(user.getId(), year, month).orElse(null);
+        PayrollEntryDTO entry = closed;
+        if (entry == null) {
+            LocalDate firstDay = LocalDate.of(year, month, 1);
+            LocalDate lastDay = firstDay.withDayOfMonth(firstDay.lengthOfMonth());
+            List<Attendance> attendances = attendanceRepository.findByUserAndWorkDateBetween(user, firstDay, lastDay);
+            // Credits of the month are deducted from the salary
+            double totalCredits = creditLedgerService.getMonthTotal(user.getId(), year, month);
+            entry = SalaryRule.compute(user, attendances, totalCredits);
         }
 
-        // ✅ NEW: Get credits for this month and deduct from salary
-        Double totalCredits = creditRepository.sumCreditsByUserIdAndDateRange(user.getId(), firstDay, lastDay);
-        if (totalCredits == null) {
-            totalCredits = 0.0;
-        }
-
-        // Calculate final salary after credits deduction
-        double finalSalary = totalSalary - totalCredits;
-
         Map<String, Object> result = new HashMap<>();
-        result.put("dailySalary", dailySalaryRate);
-        result.put("hourlyRate", hourlyRate);
-        result.put("deductionRatePerHour", deductionRate);
-        result.put("totalDaysWorked", daysWorked);
-        result.put("baseSalary", totalSalary);        // Salary before credits
-        result.put("totalCredits", totalCredits);      // Credits to deduct
-        result.put("totalSalary", finalSalary);        // Final salary after credits
-        result.put("minHoursRequired", MIN_HOURS);
-        result.put("dailyBreakdown", dailyBreakdown);
+        result.put("dailySalary", entry.getDailySalary());
+        result.put("hourlyRate", entry.getHourlyRate());
+        result.put("deductionRatePerHour", entry.getDeductionRatePerHour());
+        result.put("totalDaysWorked", entry.getTotalDaysWorked());
+        result.put("baseSalary", entry.getBaseSalary());      // Salary before credits
+        result.put("totalCredits", entry.getTotalCredits());  // Credits to deduct
+        result.put("totalSalary", entry.getTotalSalary());    // Final salary after credits
+        result.put("minHoursRequired", SalaryRule.MIN_HOURS);
+        result.put("dailyBreakdown", SalaryReportService.breakdownNewestFirst(entry));
+        result.put("periodClosed", closed != null);
         return result;
     }
     // Add this method to match controller
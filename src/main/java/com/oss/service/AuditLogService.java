@@ -44,6 +44,29 @@ public class AuditLogService {
             // Don't fail the transaction if audit logging fails
         }
     }
+    /**
+     * Create one audit entry per entity in a single saveAll, inserted as JDBC batches
+     * @param newValuesByEntityId new values keyed by entity id
+     */
+    public void createAuditLogs(User user, String action, String entityType, Map<Long, Map<String, Object>> newValuesByEntityId) {
+        Instant now = Instant.now();
+        List<AuditLog> auditLogs = new ArrayList<>();
+        for (Map.Entry<Long, Map<String, Object>> entry : newValuesByEntityId.entrySet()) {
+            try {
+                auditLogs.add(AuditLog.builder()
+                        .user(user)
+                        .action(action)
+                        .entityType(entityType)
+                        .entityId(entry.getKey())
+                        .newValue(objectMapper.writeValueAsString(entry.getValue()))
+                        .createdAt(now)
+                        .build());
+            } catch (JsonProcessingException e) {
+                log.error("Failed to create audit log: {}", e.getMessage(), e);
+            }
+        }
+        auditLogRepo.saveAll(auditLogs);
+    }
     public List<Map<String, Object>> getAllAuditLogs() {
         return auditLogRepo.findAllOrderByCreatedAtDesc().stream()
                 .map(this::convertToMap)
@@ -25,16 +25,19 @@ public class CashTransactionService {
     private final ExpenseTypeRepository expenseTypeRepo;
     private final AuditLogService auditLogService;
     private final DailySummaryService dailySummaryService;
+    private final ReportCacheService reportCache;
     public CashTransactionService(CashTransactionRepository transactionRepo,
                                  DailyCashRepository dailyCashRepo,
                                  ExpenseTypeRepository expenseTypeRepo,
                                  AuditLogService auditLogService,
-                                 DailySummaryService dailySummaryService) {
+                                 DailySummaryService dailySummaryService,
+                                 ReportCacheService reportCache) {
         this.transactionRepo = transactionRepo;
         this.dailyCashRepo = dailyCashRepo;
         this.expenseTypeRepo = expenseTypeRepo;
         this.auditLogService = auditLogService;
         this.dailySummaryService = dailySummaryService;
+        this.reportCache = reportCache;
     }
     public Map<String, Object> getTransactionDetails(Long id) {
         CashTransaction transaction = transactionRepo.findById(id)
@@ -55,7 +58,7 @@ public class CashTransactionService {
     }
     /**
      * Update a cash transaction (SUPERADMIN only)
-     * Automatically recalculates daily summary
+     * Automatically updates the daily summary
      */
     @Transactional
     public void updateTransaction(Long id, Map<String, Object> updates, User user) {
@@ -63,6 +66,7 @@ public class CashTransactionService {
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
         DailyCash dailyCash = transaction.getDailyCash();
 
+        double oldAmount = transaction.getAmount();
         // Capture old values for audit
         Map<String, Object> oldValues = new HashMap<>();
         oldValues.put("amount", transaction.getAmount());
@@ -82,6 +86,7 @@ public class CashTransactionService {
             transaction.setExpenseType(expenseType);
         }
         CashTransaction saved = transactionRepo.save(transaction);
+        reportCache.invalidate(dailyCash.getBusinessDate());
 
         // Create audit log
         Map<String, Object> newValues = new HashMap<>();
@@ -90,19 +95,12 @@ public class CashTransactionService {
         newValues.put("expenseTypeId", saved.getExpenseType() != null ? saved.getExpenseType().getId() : null);
         auditLogService.createAuditLog(user, "EDIT", "CASH_TRANSACTION", id, oldValues, newValues);
 
-        // Recalculate summary if day is closed
-        if (dailyCash.getLocked()) {
-            try {
-                dailySummaryService.calculateAndSaveDailySummary(dailyCash);
-            } catch (Exception e) {
-                log.error("Failed to recalculate daily summary: {}", e.getMessage(), e);
-                throw new RuntimeException("Failed to recalculate daily summary: " + e.getMessage(), e);
-            }
-        }
+        // Move the day's summary by the change in amount
+        dailySummaryService.applyTransactionDelta(dailyCash, saved.getType(), saved.getAmount() - oldAmount, 0);
     }
     /**
      * Delete a cash transaction (SUPERADMIN only)
-     * Automatically recalculates daily summary
+     * Automatically updates the daily summary
      */
     @Transactional
     public void deleteTransaction(Long id, User user) {
@@ -110,7 +108,6 @@ public class CashTransactionService {
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
         // Save reference to daily cash before deletion
         DailyCash dailyCash = transaction.getDailyCash();
-        boolean wasClosed = dailyCash.getLocked();
         // Capture old values for audit
         Map<String, Object> oldValues = new HashMap<>();
         oldValues.put("dailyCashId", dailyCash.getId());
@@ -122,13 +119,8 @@ public class CashTransactionService {
         auditLogService.createAuditLog(user, "DELETE", "CASH_TRANSACTION", id, oldValues, null);
         // Delete transaction
         transactionRepo.delete(transaction);
-        // âœ… RECALCULATE SUMMARY if day is/was closed
-        if (wasClosed) {
-            try {
-                dailySummaryService.calculateAndSaveDailySummary(dailyCash);
-            } catch (Exception e) {
-                log.error("Failed to recalculate daily summary: {}", e.getMessage(), e);
-            }
-        }
+        reportCache.invalidate(dailyCash.getBusinessDate());
+        // Take the transaction out of the day's summary
+        dailySummaryService.applyTransactionDelta(dailyCash, transaction.getType(), -transaction.getAmount(), -1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,334 @@
+package com.oss.service;
+import com.oss.model.Credit;
+import com.oss.model.CreditBalance;
+import com.oss.model.CreditMonthlyBalance;
+import com.oss.repository.CreditBalanceRepository;
+import com.oss.repository.CreditMonthlyBalanceRepository;
+import com.oss.repository.CreditRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDate;
+import java.util.*;
+/**
+ * Credit Ledger Service - Maintains the per-user credit balances and their monthly breakdown
+ * Every credit write applies only its own signed change, so balance lookups never rescan credits.
+ * A nightly check compares the ledger with the credits table and rebuilds it on any difference.
+ */
+@Service
+public class CreditLedgerService {
+    private static final Logger log = LoggerFactory.getLogger(CreditLedgerService.class);
+    private static final double TOLERANCE = 0.005;
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+
+    private final CreditBalanceRepository balanceRepo;
+    private final CreditMonthlyBalanceRepository monthlyBalanceRepo;
+    private final CreditRepository creditRepo;
+    private final TransactionTemplate tx;
+
+    public CreditLedgerService(CreditBalanceRepository balanceRepo,
+                               CreditMonthlyBalanceRepository monthlyBalanceRepo,
+                               CreditRepository creditRepo,
+                               PlatformTransactionManager transactionManager) {
+        this.balanceRepo = balanceRepo;
+        this.monthlyBalanceRepo = monthlyBalanceRepo;
+        this.creditRepo = creditRepo;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Add a new credit to the ledger
+     */
+    @Transactional
+    public void creditAdded(Credit credit) {
+        apply(credit.getUser().getId(), credit.getTransactionDate(), credit.getAmount(), isPaid(credit.getIsPaid()), 1);
+    }
+
+    /**
+     * Take a deleted credit out of the ledger
+     */
+    @Transactional
+    public void creditRemoved(Credit credit) {
+        apply(credit.getUser().getId(), credit.getTransactionDate(), credit.getAmount(), isPaid(credit.getIsPaid()), -1);
+    }
+
+    /**
+     * Move a credit from its old values to its new ones
+     * When user and month are unchanged the difference is applied as one update per table
+     */
+    @Transactional
+    public void creditChanged(Long oldUserId, LocalDate oldDate, double oldAmount, boolean oldPaid, Credit credit) {
+        Long userId = credit.getUser().getId();
+        LocalDate date = credit.getTransactionDate();
+        double amount = credit.getAmount();
+        boolean paid = isPaid(credit.getIsPaid());
+        if (oldUserId.equals(userId) && sameMonth(oldDate, date)) {
+            double amountDelta = amount - oldAmount;
+            double paidDelta = (paid ? amount : 0.0) - (oldPaid ? oldAmount : 0.0);
+            int unpaidDelta = (paid ? 0 : 1) - (oldPaid ? 0 : 1);
+            if (amountDelta != 0.0 || paidDelta != 0.0 || unpaidDelta != 0) {
+                applyDelta(userId, date, amountDelta, paidDelta, 0, unpaidDelta);
+            }
+        } else {
+            apply(oldUserId, oldDate, oldAmount, oldPaid, -1);
+            apply(userId, date, amount, paid, 1);
+        }
+    }
+
+    /**
+     * Move a batch of settled credits from unpaid to paid, one update per user and month
+     * @param rows the settled credits, layout: id, userId, transactionDate, amount
+     */
+    @Transactional
+    public void creditsSettled(List<Object[]> rows) {
+        Map<String, double[]> totals = new LinkedHashMap<>();
+        Map<String, Object[]> keys = new HashMap<>();
+        for (Object[] row : rows) {
+            Long userId = (Long) row[1];
+            LocalDate date = (LocalDate) row[2];
+            String key = date != null ? monthKey(userId, date.getYear(), date.getMonthValue()) : userId + ":none";
+            keys.putIfAbsent(key, new Object[]{userId, date});
+            double[] total = totals.computeIfAbsent(key, k -> new double[2]);
+            total[0] += ((Number) row[3]).doubleValue();
+            total[1]++;
+        }
+        for (Map.Entry<String, double[]> entry : totals.entrySet()) {
+            Object[] key = keys.get(entry.getKey());
+            double[] total = entry.getValue();
+            applyDelta((Long) key[0], (LocalDate) key[1], 0.0, total[0], 0, -(int) total[1]);
+        }
+    }
+
+    /**
+     * Balance of one user, with zero totals when the user has never had a credit
+     */
+    public CreditBalance getBalance(Long userId) {
+        return balanceRepo.findByUserId(userId)
+                .orElseGet(() -> CreditBalance.builder().userId(userId).build());
+    }
+
+    /**
+     * Total credits of one user with a transaction date in the given month
+     */
+    public double getMonthTotal(Long userId, int year, int month) {
+        return monthlyBalanceRepo.findByUserIdAndYearAndMonth(userId, year, month)
+                .map(CreditMonthlyBalance::getTotalAmount)
+                .orElse(0.0);
+    }
+
+    /**
+     * Rebuild the whole ledger from the credits table
+     * Existing rows are corrected in place and rows without credits are removed
+     * @return number of balance rows kept
+     */
+    @Transactional
+    public int rebuildAll() {
+        Ledger expected = Ledger.fromCredits(creditRepo.sumGroupedByUserAndTransactionDate());
+        reconcile(expected, loadBalances(), loadMonths());
+        return expected.balances.size();
+    }
+
+    /**
+     * Compare every ledger row with totals computed from the credits table
+     * @param repair correct the ledger when a difference is found
+     */
+    @Transactional
+    public Map<String, Object> checkConsistency(boolean repair) {
+        Ledger expected = Ledger.fromCredits(creditRepo.sumGroupedByUserAndTransactionDate());
+        Map<Long, CreditBalance> actualBalances = loadBalances();
+        Map<String, CreditMonthlyBalance> actualMonths = loadMonths();
+        List<Map<String, Object>> mismatches = new ArrayList<>();
+        Set<Long> userIds = new TreeSet<>(expected.balances.keySet());
+        userIds.addAll(actualBalances.keySet());
+        for (Long userId : userIds) {
+            CreditBalance want = expected.balances.getOrDefault(userId, CreditBalance.builder().userId(userId).build());
+            CreditBalance have = actualBalances.getOrDefault(userId, CreditBalance.builder().userId(userId).build());
+            compare(mismatches, "user " + userId, "totalAmount", want.getTotalAmount(), have.getTotalAmount());
+            compare(mismatches, "user " + userId, "paidAmount", want.getPaidAmount(), have.getPaidAmount());
+            compare(mismatches, "user " + userId, "unpaidAmount", want.getUnpaidAmount(), have.getUnpaidAmount());
+            compare(mismatches, "user " + userId, "creditCount", want.getCreditCount(), have.getCreditCount());
+            compare(mismatches, "user " + userId, "unpaidCount", want.getUnpaidCount(), have.getUnpaidCount());
+        }
+        Set<String> monthKeys = new TreeSet<>(expected.months.keySet());
+        monthKeys.addAll(actualMonths.keySet());
+        for (String key : monthKeys) {
+            CreditMonthlyBalance want = expected.months.getOrDefault(key, CreditMonthlyBalance.builder().build());
+            CreditMonthlyBalance have = actualMonths.getOrDefault(key, CreditMonthlyBalance.builder().build());
+            compare(mismatches, "month " + key, "totalAmount", want.getTotalAmount(), have.getTotalAmount());
+            compare(mismatches, "month " + key, "paidAmount", want.getPaidAmount(), have.getPaidAmount());
+            compare(mismatches, "month " + key, "unpaidAmount", want.getUnpaidAmount(), have.getUnpaidAmount());
+            compare(mismatches, "month " + key, "creditCount", want.getCreditCount(), have.getCreditCount());
+        }
+        boolean repaired = repair && !mismatches.isEmpty();
+        if (repaired) {
+            reconcile(expected, actualBalances, actualMonths);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("checkedUsers", userIds.size());
+        result.put("checkedMonths", monthKeys.size());
+        result.put("mismatchCount", mismatches.size());
+        result.put("mismatches", mismatches.size() > MAX_REPORTED_MISMATCHES
+                ? mismatches.subList(0, MAX_REPORTED_MISMATCHES) : mismatches);
+        result.put("repaired", repaired);
+        return result;
+    }
+
+    /**
+     * Nightly comparison of the ledger with the credits table, repairing any drift
+     */
+    @Scheduled(cron = "${credit-ledger.check-cron:0 30 3 * * *}")
+    public void scheduledConsistencyCheck() {
+        Map<String, Object> result = tx.execute(status -> checkConsistency(true));
+        if (result != null && (Integer) result.get("mismatchCount") > 0) {
+            log.warn("Credit ledger differed from credits table and was rebuilt: {}", result);
+        } else {
+            log.info("Credit ledger consistency check passed: {}", result);
+        }
+    }
+
+    /**
+     * Build the ledger the first time the application starts with credits but no ledger rows
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeLedger() {
+        if (balanceRepo.count() == 0 && creditRepo.count() > 0) {
+            Integer users = tx.execute(status -> rebuildAll());
+            log.info("Credit ledger built for {} users", users);
+        }
+    }
+
+    private Map<Long, CreditBalance> loadBalances() {
+        Map<Long, CreditBalance> balances = new HashMap<>();
+        for (CreditBalance balance : balanceRepo.findAll()) {
+            balances.put(balance.getUserId(), balance);
+        }
+        return balances;
+    }
+
+    private Map<String, CreditMonthlyBalance> loadMonths() {
+        Map<String, CreditMonthlyBalance> months = new HashMap<>();
+        for (CreditMonthlyBalance month : monthlyBalanceRepo.findAll()) {
+            months.put(monthKey(month.getUserId(), month.getYear(), month.getMonth()), month);
+        }
+        return months;
+    }
+
+    /**
+     * Make the stored rows equal to the expected ones, reusing a stored row where one exists
+     */
+    private void reconcile(Ledger expected, Map<Long, CreditBalance> balances, Map<String, CreditMonthlyBalance> months) {
+        long now = System.currentTimeMillis();
+        List<CreditBalance> balanceRows = new ArrayList<>();
+        for (CreditBalance want : expected.balances.values()) {
+            CreditBalance row = balances.remove(want.getUserId());
+            if (row != null) {
+                want.setId(row.getId());
+            }
+            want.setUpdatedAt(now);
+            balanceRows.add(want);
+        }
+        List<CreditMonthlyBalance> monthRows = new ArrayList<>();
+        for (Map.Entry<String, CreditMonthlyBalance> entry : expected.months.entrySet()) {
+            CreditMonthlyBalance row = months.remove(entry.getKey());
+            CreditMonthlyBalance want = entry.getValue();
+            if (row != null) {
+                want.setId(row.getId());
+            }
+            want.setUpdatedAt(now);
+            monthRows.add(want);
+        }
+        balanceRepo.deleteAll(balances.values());
+        monthlyBalanceRepo.deleteAll(months.values());
+        balanceRepo.saveAll(balanceRows);
+        monthlyBalanceRepo.saveAll(monthRows);
+    }
+
+    private void apply(Long userId, LocalDate date, double amount, boolean paid, int sign) {
+        applyDelta(userId, date, sign * amount, paid ? sign * amount : 0.0, sign, paid ? 0 : sign);
+    }
+
+    private void applyDelta(Long userId, LocalDate date, double amount, double paid, int count, int unpaidCount) {
+        long now = System.currentTimeMillis();
+        balanceRepo.applyDelta(userId, amount, paid, count, unpaidCount, now);
+        // Credits without a transaction date count toward the balance but belong to no month
+        if (date != null) {
+            monthlyBalanceRepo.applyDelta(userId, date.getYear(), date.getMonthValue(), amount, paid, count, now);
+        }
+    }
+
+    private static void compare(List<Map<String, Object>> mismatches, String row, String field, Number expected, Number actual) {
+        double want = expected != null ? expected.doubleValue() : 0.0;
+        double have = actual != null ? actual.doubleValue() : 0.0;
+        if (Math.abs(want - have) > TOLERANCE) {
+            Map<String, Object> mismatch = new LinkedHashMap<>();
+            mismatch.put("row", row);
+            mismatch.put("field", field);
+            mismatch.put("expected", want);
+            mismatch.put("actual", have);
+            mismatches.add(mismatch);
+        }
+    }
+
+    private static boolean sameMonth(LocalDate a, LocalDate b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getYear() == b.getYear() && a.getMonthValue() == b.getMonthValue();
+    }
+
+    private static boolean isPaid(Boolean isPaid) {
+        return Boolean.TRUE.equals(isPaid);
+    }
+
+    private static String monthKey(Long userId, int year, int month) {
+        return userId + ":" + year + ":" + month;
+    }
+
+    /**
+     * Ledger rows computed in memory from the per-user, per-day credit totals
+     */
+    private static class Ledger {
+        private final Map<Long, CreditBalance> balances = new HashMap<>();
+        private final Map<String, CreditMonthlyBalance> months = new HashMap<>();
+
+        static Ledger fromCredits(List<Object[]> rows) {
+            Ledger ledger = new Ledger();
+            for (Object[] row : rows) {
+                Long userId = (Long) row[0];
+                LocalDate date = (LocalDate) row[1];
+                double total = ((Number) row[2]).doubleValue();
+                double paid = ((Number) row[3]).doubleValue();
+                int count = ((Number) row[4]).intValue();
+                int unpaidCount = ((Number) row[5]).intValue();
+                CreditBalance balance = ledger.balances.computeIfAbsent(userId,
+                        id -> CreditBalance.builder().userId(id).build());
+                balance.setTotalAmount(balance.getTotalAmount() + total);
+                balance.setPaidAmount(balance.getPaidAmount() + paid);
+                balance.setUnpaidAmount(balance.getUnpaidAmount() + total - paid);
+                balance.setCreditCount(balance.getCreditCount() + count);
+                balance.setUnpaidCount(balance.getUnpaidCount() + unpaidCount);
+                if (date == null) {
+                    continue;
+                }
+                CreditMonthlyBalance month = ledger.months.computeIfAbsent(
+                        monthKey(userId, date.getYear(), date.getMonthValue()),
+                        key -> CreditMonthlyBalance.builder()
+                                .userId(userId)
+                                .year(date.getYear())
+                                .month(date.getMonthValue())
+                                .build());
+                month.setTotalAmount(month.getTotalAmount() + total);
+                month.setPaidAmount(month.getPaidAmount() + paid);
+                month.setUnpaidAmount(month.getUnpaidAmount() + total - paid);
+                month.setCreditCount(month.getCreditCount() + count);
+            }
+            return ledger;
+        }
+    }
+}
@@ -1,18 +1,25 @@
 package com.oss.service;
+import com.oss.dto.CreditFilter;
+import com.oss.dto.CreditPageDTO;
 import com.oss.dto.OSD_CreditDTO;
 import com.oss.model.Credit;
-import com.oss.model.DailyCash;
 import com.oss.model.User;
 import com.oss.repository.CreditRepository;
-import com.oss.repository.DailyCashRepository;
 import com.oss.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -26,21 +33,64 @@ public class CreditService {
     @Autowired
     private AuditLogService auditLogService;
     @Autowired
-    private DailyCashRepository dailyCashRepository;
-    @Autowired
     private DailySummaryService dailySummaryService;
+    @Autowired
+    private ReportCacheService reportCache;
+    @Autowired
+    private CreditLedgerService creditLedgerService;
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_SETTLE_IDS = 5000;
     public List<OSD_CreditDTO> getAllCredits() {
-        return creditRepository.findAllByOrderByCreatedAtDesc().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return getCredits(new CreditFilter());
     }
     public List<OSD_CreditDTO> getCreditsByPaidStatus(Boolean isPaid) {
-        if (isPaid == null) {
-            return getAllCredits();
+        return getCredits(CreditFilter.builder().isPaid(isPaid).build());
+    }
+    /**
+     * Every credit matching the filter, newest first, read as DTO rows without loading entities
+     */
+    public List<OSD_CreditDTO> getCredits(CreditFilter filter) {
+        return creditRepository.findPage(filter, null, null, null);
+    }
+    /**
+     * One page of credits matching the filter, newest first
+     * Pages are keyed on the (createdAt, id) of the last row rather than an offset,
+     * so a deep page costs the same as the first and rows added meanwhile do not shift it
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param limit  page size, null for the default
+     */
+    public CreditPageDTO getCreditPage(CreditFilter filter, String cursor, Integer limit) {
+        int size = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
         }
-        return creditRepository.findByIsPaidOrderByCreatedAtDesc(isPaid).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                afterCreatedAt = LocalDateTime.parse(parts[0]);
+                afterId = Long.valueOf(parts[1]);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+        // One extra row tells whether another page follows
+        List<OSD_CreditDTO> rows = creditRepository.findPage(filter, afterCreatedAt, afterId, size + 1);
+        boolean hasMore = rows.size() > size;
+        List<OSD_CreditDTO> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            OSD_CreditDTO last = items.get(items.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getCreatedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return CreditPageDTO.builder()
+                .items(new ArrayList<>(items))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
     @Transactional
     public void saveCredit(Map<String, Object> body) {
@@ -83,6 +133,11 @@ public class CreditService {
             credit.setTransactionDate(java.time.LocalDate.now());
         }
         Credit saved = creditRepository.save(credit);
+        creditLedgerService.creditAdded(saved);
+        reportCache.invalidate(saved.getTransactionDate());
+        if (saved.getShop() != null) {
+            dailySummaryService.applyCreditDelta(saved.getShop().getId(), saved.getTransactionDate(), amount, 1);
+        }
         // Create audit log
         java.util.Map<String, Object> newValues = new java.util.HashMap<>();
         newValues.put("id", saved.getId());
@@ -103,13 +158,84 @@ public class CreditService {
         // Capture old values for audit
         java.util.Map<String, Object> oldValues = new java.util.HashMap<>();
         oldValues.put("isPaid", credit.getIsPaid());
+        boolean wasPaid = Boolean.TRUE.equals(credit.getIsPaid());
         credit.setIsPaid(isPaid);
         Credit saved = creditRepository.save(credit);
+        creditLedgerService.creditChanged(saved.getUser().getId(), saved.getTransactionDate(), saved.getAmount(), wasPaid, saved);
         // Create audit log
         java.util.Map<String, Object> newValues = new java.util.HashMap<>();
         newValues.put("isPaid", isPaid);
         auditLogService.createAuditLog(credit.getUser(), "UPDATE_PAID_STATUS", "CREDIT", id, oldValues, newValues);
     }
+    /**
+     * Mark many credits paid in one UPDATE, e.g. for a month-end payroll settlement
+     * Credits are chosen by id list, or by transaction date range for one user (null userId = every user).
+     * The ledger is moved in the same transaction and one audit entry is written per staff member.
+     * @return number and total of the credits settled, overall and per user
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> settleCredits(List<Long> creditIds, Long userId, LocalDate startDate, LocalDate endDate, User actor) {
+        boolean byIds = creditIds != null && !creditIds.isEmpty();
+        if (!byIds && (startDate == null || endDate == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either creditIds or startDate and endDate are required");
+        }
+        if (byIds && creditIds.size() > MAX_SETTLE_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_SETTLE_IDS + " credit ids per request");
+        }
+        if (!byIds && startDate.isAfter(endDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Start date must not be after end date");
+        }
+        List<Object[]> rows = byIds
+                ? creditRepository.findUnpaidRowsByIds(creditIds)
+                : creditRepository.findUnpaidRowsByUserAndDateRange(userId, startDate, endDate);
+        int updated = rows.isEmpty() ? 0 : byIds
+                ? creditRepository.markPaidByIds(creditIds)
+                : creditRepository.markPaidByUserAndDateRange(userId, startDate, endDate);
+        if (updated != rows.size()) {
+            // Another request paid or added credits in between; roll back rather than miscount the ledger
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Credits changed during settlement, please retry");
+        }
+        creditLedgerService.creditsSettled(rows);
+        // Group the settled credits per staff member for the response and the audit log
+        Map<Long, Map<String, Object>> byUser = new LinkedHashMap<>();
+        double totalAmount = 0.0;
+        for (Object[] row : rows) {
+            Long creditUserId = (Long) row[1];
+            double amount = ((Number) row[3]).doubleValue();
+            Map<String, Object> userTotal = byUser.computeIfAbsent(creditUserId, id -> {
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("userId", id);
+                map.put("count", 0);
+                map.put("totalAmount", 0.0);
+                map.put("creditIds", new ArrayList<Long>());
+                return map;
+            });
+            userTotal.put("count", (Integer) userTotal.get("count") + 1);
+            userTotal.put("totalAmount", (Double) userTotal.get("totalAmount") + amount);
+            ((List<Long>) userTotal.get("creditIds")).add((Long) row[0]);
+            totalAmount += amount;
+        }
+        for (User user : userRepository.findAllById(byUser.keySet())) {
+            byUser.get(user.getId()).put("userName", user.getName());
+        }
+        Map<Long, Map<String, Object>> auditValues = new LinkedHashMap<>();
+        byUser.forEach((id, userTotal) -> {
+            Map<String, Object> values = new LinkedHashMap<>(userTotal);
+            values.put("isPaid", true);
+            if (!byIds) {
+                values.put("startDate", startDate.toString());
+                values.put("endDate", endDate.toString());
+            }
+            auditValues.put(id, values);
+        });
+        auditLogService.createAuditLogs(actor, "SETTLE", "CREDIT_SETTLEMENT", auditValues);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("settledCount", rows.size());
+        response.put("totalAmount", totalAmount);
+        response.put("users", new ArrayList<>(byUser.values()));
+        return response;
+    }
     public OSD_CreditDTO convertToDTO(Credit credit) {
         OSD_CreditDTO dto = new OSD_CreditDTO();
         dto.setId(credit.getId());
@@ -128,19 +254,17 @@ public class CreditService {
         dto.setCreatedAt(credit.getCreatedAt());  // âš ï¸ NEW: Include timestamp for sorting
         return dto;
     }
+    /**
+     * Unpaid credit total per staff member, computed by one grouped query over the unpaid rows
+     */
     public List<Map<String, Object>> getUnpaidSummary() {
-        // Groups by user and sums unpaid amounts
-        return creditRepository.findAll().stream()
-                .filter(c -> !c.getIsPaid())
-                .collect(Collectors.groupingBy(
-                        c -> c.getUser().getName(),
-                        Collectors.summingDouble(Credit::getAmount)
-                ))
-                .entrySet().stream()
-                .map(entry -> {
+        return creditRepository.sumUnpaidGroupedByUser().stream()
+                .map(row -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("userName", entry.getKey());
-                    map.put("totalUnpaid", entry.getValue());
+                    map.put("userId", row[0]);
+                    map.put("userName", row[1]);
+                    map.put("totalUnpaid", row[2]);
+                    map.put("count", row[3]);
                     return map;
                 })
                 .collect(Collectors.toList());
@@ -173,23 +297,17 @@ public class CreditService {
         oldValues.put("transactionDate", credit.getTransactionDate().toString());
         // Create audit log before deletion
         auditLogService.createAuditLog(user, "DELETE", "CREDIT", id, oldValues, null);
-        // Save reference to shop and date before deletion for summary recalculation
+        // Save reference to shop and date before deletion for the summary update
         LocalDate creditDate = credit.getTransactionDate();
         Long shopId = credit.getShop() != null ? credit.getShop().getId() : null;
+        double amount = credit.getAmount();
         // Delete the credit
+        creditLedgerService.creditRemoved(credit);
         creditRepository.delete(credit);
-        // âœ… RECALCULATE SUMMARY for the credit's date
+        reportCache.invalidate(creditDate);
+        // Take the credit out of the summary for the credit's date
         if (shopId != null) {
-            DailyCash dailyCash = dailyCashRepository
-                    .findByShop_IdAndBusinessDate(shopId, creditDate)
-                    .orElse(null);
-            if (dailyCash != null && dailyCash.getLocked()) {
-                try {
-                    dailySummaryService.calculateAndSaveDailySummary(dailyCash);
-                } catch (Exception e) {
-                    log.error("Failed to recalculate daily summary: {}", e.getMessage(), e);
-                }
-            }
+            dailySummaryService.applyCreditDelta(shopId, creditDate, -amount, -1);
         }
     }
     /**
@@ -207,6 +325,10 @@ public class CreditService {
         oldValues.put("isPaid", credit.getIsPaid());
         oldValues.put("department", credit.getDepartment());
         oldValues.put("transactionDate", credit.getTransactionDate().toString());
+        LocalDate oldCreditDate = credit.getTransactionDate();
+        double oldAmount = credit.getAmount();
+        Long oldUserId = credit.getUser().getId();
+        boolean oldPaid = Boolean.TRUE.equals(credit.getIsPaid());
         // Update fields if provided
         if (body.containsKey("userId")) {
             Long newUserId = Long.valueOf(body.get("userId").toString());
@@ -230,6 +352,9 @@ public class CreditService {
             credit.setTransactionDate(java.time.LocalDate.parse((String) body.get("transactionDate")));
         }
         Credit saved = creditRepository.save(credit);
+        creditLedgerService.creditChanged(oldUserId, oldCreditDate, oldAmount, oldPaid, saved);
+        reportCache.invalidate(oldCreditDate);
+        reportCache.invalidate(saved.getTransactionDate());
         // Capture new values for audit
         java.util.Map<String, Object> newValues = new java.util.HashMap<>();
         newValues.put("userId", saved.getUser().getId());
@@ -240,19 +365,15 @@ public class CreditService {
         newValues.put("transactionDate", saved.getTransactionDate().toString());
         // Create audit log
         auditLogService.createAuditLog(user, "EDIT", "CREDIT", id, oldValues, newValues);
-        // âœ… RECALCULATE SUMMARY for the credit's date
-        LocalDate creditDate = saved.getTransactionDate();
+        // Move the summaries by the change; a new date moves the credit from one day to the other
         if (saved.getShop() != null) {
-            DailyCash dailyCash = dailyCashRepository
-                    .findByShop_IdAndBusinessDate(saved.getShop().getId(), creditDate)
-                    .orElse(null);
-            if (dailyCash != null && dailyCash.getLocked()) {
-                try {
-                    dailySummaryService.calculateAndSaveDailySummary(dailyCash);
-                } catch (Exception e) {
-                    log.error("Failed to recalculate daily summary: {}", e.getMessage(), e);
-                }
+            Long shopId = saved.getShop().getId();
+            if (oldCreditDate.equals(saved.getTransactionDate())) {
+                dailySummaryService.applyCreditDelta(shopId, oldCreditDate, saved.getAmount() - oldAmount, 0);
+            } else {
+                dailySummaryService.applyCreditDelta(shopId, oldCreditDate, -oldAmount, -1);
+                dailySummaryService.applyCreditDelta(shopId, saved.getTransactionDate(), saved.getAmount(), 1);
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -1,4 +1,5 @@
 package com.oss.service;
+import com.oss.dto.CashTransactionBatchRequest;
 import com.oss.dto.CashTransactionDTO;
 import com.oss.dto.DailyCashSummaryDTO;
 import com.oss.dto.OSD_CreditDTO;
@@ -7,15 +8,21 @@ import com.oss.model.*;
 import com.oss.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import com.oss.repository.UserRepository;
 @Service
 public class DailyCashService {
@@ -29,6 +36,24 @@ public class DailyCashService {
     private final AuditLogService auditLogService;
     private final DailySummaryService dailySummaryService;
     private final UserRepository userRepository;
+    private final ReportCacheService reportCache;
+
+    private static class LatestDay {
+        private final LocalDate businessDate;
+        private final Double closingCash;
+        LatestDay(LocalDate businessDate, Double closingCash) {
+            this.businessDate = businessDate;
+            this.closingCash = closingCash;
+        }
+    }
+    // Shops and their latest business day for the shops summary screen
+    // Loaded once with two queries, then kept current by the writes that create or close a day;
+    // deleting a day or changing the shops drops both and the next read loads them again
+    private final Map<Long, LatestDay> latestByShop = new ConcurrentHashMap<>();
+    private volatile List<Shop> latestShops = null;
+    // Guarded by latestByShop: a load that overlaps a reset serves its own request but is not kept
+    private long latestGeneration = 0;
+
     public DailyCashService(DailyCashRepository dailyCashRepo,
                            ShopRepository shopRepo,
                            CashTransactionRepository cashTransactionRepo,
@@ -36,7 +61,8 @@ public class DailyCashService {
                            ExpenseTypeRepository expenseTypeRepo,
                            AuditLogService auditLogService,
                            DailySummaryService dailySummaryService,
-                           UserRepository userRepository) {
+                           UserRepository userRepository,
+                           ReportCacheService reportCache) {
         this.dailyCashRepo = dailyCashRepo;
         this.shopRepo = shopRepo;
         this.cashTransactionRepo = cashTransactionRepo;
@@ -45,23 +71,91 @@ public class DailyCashService {
         this.auditLogService = auditLogService;
         this.dailySummaryService = dailySummaryService;
         this.userRepository = userRepository;
+        this.reportCache = reportCache;
     }
     public List<ShopSummaryDTO> getShopsSummary() {
-        return shopRepo.findAll().stream()
+        List<Shop> shops = latestShops;
+        Map<Long, LatestDay> latest = latestByShop;
+        if (shops == null) {
+            long loadGeneration;
+            synchronized (latestByShop) {
+                loadGeneration = latestGeneration;
+            }
+            shops = shopRepo.findAll();
+            Map<Long, LatestDay> loaded = new HashMap<>();
+            for (Object[] row : dailyCashRepo.findLatestRowPerShop()) {
+                loaded.put((Long) row[0], new LatestDay((LocalDate) row[1], (Double) row[2]));
+            }
+            latest = keepLatest(shops, loaded, loadGeneration) ? latestByShop : loaded;
+        }
+        Map<Long, LatestDay> latestDays = latest;
+        return shops.stream()
                 .map(shop -> {
-                    List<DailyCash> latestList = dailyCashRepo.findLatestByShop(shop);
-                    DailyCash latest = latestList.isEmpty() ? null : latestList.get(0);
+                    LatestDay day = latestDays.get(shop.getId());
                     return ShopSummaryDTO.builder()
                             .shopId(shop.getId())
                             .shopCode(shop.getCode())
                             .shopName(shop.getName())
-                            .latestClosingCash(latest != null ? latest.getClosingCash() : null)
-                            .lastUpdatedDate(latest != null ? latest.getBusinessDate().toString() : null)
+                            .latestClosingCash(day != null ? day.closingCash : null)
+                            .lastUpdatedDate(day != null ? day.businessDate.toString() : null)
                             .build();
                 })
                 .collect(Collectors.toList());
     }
-    @Transactional
+    /**
+     * Keep a freshly loaded shop list and latest day index, unless the index was reset while they were read
+     * @return true if the loaded values were kept
+     */
+    private boolean keepLatest(List<Shop> shops, Map<Long, LatestDay> loaded, long loadGeneration) {
+        synchronized (latestByShop) {
+            if (latestGeneration != loadGeneration) {
+                return false;
+            }
+            // An entry written while loading is at least as fresh as the query result
+            loaded.forEach((shopId, fromDb) -> latestByShop.merge(shopId, fromDb,
+                    (current, db) -> db.businessDate.isAfter(current.businessDate) ? db : current));
+            latestShops = List.copyOf(shops);
+            return true;
+        }
+    }
+    /**
+     * Drop the shop list and latest day index once the transaction commits; the next read loads them again
+     */
+    public void resetShopsSummary() {
+        afterCommit(() -> {
+            synchronized (latestByShop) {
+                latestGeneration++;
+                latestShops = null;
+                latestByShop.clear();
+            }
+        });
+    }
+    /**
+     * Record a written day in the latest balance index once the transaction commits
+     */
+    private void recordLatest(DailyCash dailyCash) {
+        Long shopId = dailyCash.getShop().getId();
+        LatestDay written = new LatestDay(dailyCash.getBusinessDate(), dailyCash.getClosingCash());
+        afterCommit(() -> latestByShop.merge(shopId, written,
+                (current, update) -> update.businessDate.isBefore(current.businessDate) ? current : update));
+    }
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    /**
+     * Get the shop's day, creating it with the previous closing balance as opening cash
+     * Creation is an INSERT OR IGNORE against the (shop_id, business_date) unique index, committed on its own,
+     * so concurrent callers for the same day all read back the single row and different shops never wait on each other
+     */
     public DailyCash getOrCreateDailyCash(Long shopId, LocalDate date) {
         Shop shop = shopRepo.findById(shopId)
                 .orElseThrow(() -> new RuntimeException("Shop not found"));
@@ -69,58 +163,135 @@ public class DailyCashService {
         if (existing.isPresent()) {
             return existing.get();
         }
-        synchronized (this) {
-            existing = dailyCashRepo.findByShopAndBusinessDate(shop, date);
-            if (existing.isPresent()) {
-                return existing.get();
-            }
-            double openingCash = 0.0;
-            try {
-                DailyCash previousDay = dailyCashRepo.findLatestPreviousByShopIdAndDate(shopId, date);
-                if (previousDay != null && previousDay.getClosingCash() != null) {
-                    openingCash = previousDay.getClosingCash();
-                }
-            } catch (Exception e) {
-                openingCash = 0.0;
-            }
-            DailyCash newDailyCash = DailyCash.builder()
-                    .shop(shop)
-                    .businessDate(date)
-                    .openingCash(openingCash)
-                    .openingConfirmed(false)
-                    .locked(false)
-                    .build();
-            return dailyCashRepo.save(newDailyCash);
+        double openingCash = previousClosingCash(shopId, date);
+        int inserted = dailyCashRepo.insertIfAbsent(shopId, date, openingCash);
+        DailyCash dailyCash = dailyCashRepo.findByShopAndBusinessDate(shop, date)
+                .orElseThrow(() -> new RuntimeException("Daily cash not found"));
+        if (inserted > 0) {
+            reportCache.invalidate(date);
+            recordLatest(dailyCash);
+        }
+        return dailyCash;
+    }
+    /**
+     * Closing cash of the shop's most recent day before the date, used as the opening cash of a new day
+     */
+    private double previousClosingCash(Long shopId, LocalDate date) {
+        try {
+            return openingCashAfter(dailyCashRepo.findLatestPreviousByShopIdAndDate(shopId, date));
+        } catch (Exception e) {
+            return 0.0;
+        }
+    }
+    /**
+     * Opening cash of a new day that follows the given day: its closing cash, or zero when there is
+     * no previous day or it has not been closed
+     */
+    private static double openingCashAfter(DailyCash previousDay) {
+        if (previousDay != null && previousDay.getClosingCash() != null) {
+            return previousDay.getClosingCash();
         }
+        return 0.0;
     }
     public List<DailyCash> findLatestClosedByShopAndDateRange(Long shopId, LocalDate startDate, LocalDate endDate) {
         return dailyCashRepo.findLatestClosedByShopAndDateRange(shopId, startDate, endDate);
     }
+    /**
+     * Daily screen for the day being worked on, opening the day first if needed
+     */
     public DailyCashSummaryDTO getDailyCashSummary(Long shopId, LocalDate date) {
         DailyCash dailyCash = getOrCreateDailyCash(shopId, date);
-        // Get all transactions
-        List<CashTransaction> allTransactions = cashTransactionRepo.findByDailyCashIdOrderByCreatedAtDesc(dailyCash.getId());
-        List<CashTransactionDTO> expenses = allTransactions.stream()
-                .filter(ct -> "EXPENSE".equals(ct.getType()))
-                .map(CashTransactionDTO::from)
-                .collect(Collectors.toList());
-        List<CashTransactionDTO> sales = allTransactions.stream()
-                .filter(ct -> "SALE".equals(ct.getType()))
-                .map(CashTransactionDTO::from)
-                .collect(Collectors.toList());
-        // Get credits for this shop on this date (using department field and LocalDate)
-        String shopCode = dailyCash.getShop().getCode(); // CAFE or BOOKSHOP
-        List<Credit> creditList = creditRepo.findByShopCodeAndTransactionDate(shopCode, date);
-        List<OSD_CreditDTO> credits = creditList.stream()
-                .map(this::convertCreditToDTO)
-                .collect(Collectors.toList());
-        // Calculate totals
-        Double totalExpenses = cashTransactionRepo.sumAmountByDailyCashIdAndType(dailyCash.getId(), "EXPENSE");
-        Double manualSales = cashTransactionRepo.sumAmountByDailyCashIdAndType(dailyCash.getId(), "SALE");
-        Double totalCredits = creditRepo.sumCreditsByShopCodeAndDate(shopCode, date);
-        if (totalExpenses == null) totalExpenses = 0.0;
-        if (manualSales == null) manualSales = 0.0;
-        if (totalCredits == null) totalCredits = 0.0;
+        return buildSummary(dailyCash, cashTransactionRepo.findWithDetailsByDailyCashId(dailyCash.getId()),
+                creditRepo.findByShopCodeAndTransactionDate(dailyCash.getShop().getCode(), date));
+    }
+    /**
+     * Read-only daily screen, never creates the day
+     * An opened day costs three queries (day, transactions, credits) and every total is summed from those rows
+     * A day that was never opened comes back without an id and with the opening cash it would be created with
+     */
+    @Transactional(readOnly = true)
+    public DailyCashSummaryDTO getDailyCashSummaryReadOnly(Long shopId, LocalDate date) {
+        Optional<DailyCash> existing = dailyCashRepo.findWithShopByShopIdAndBusinessDate(shopId, date);
+        if (existing.isPresent()) {
+            return buildSummary(existing.get(), cashTransactionRepo.findWithDetailsByDailyCashId(existing.get().getId()),
+                    creditRepo.findByShopCodeAndTransactionDate(existing.get().getShop().getCode(), date));
+        }
+        Shop shop = shopRepo.findById(shopId)
+                .orElseThrow(() -> new RuntimeException("Shop not found"));
+        DailyCash notOpened = DailyCash.builder()
+                .shop(shop)
+                .businessDate(date)
+                .openingCash(previousClosingCash(shopId, date))
+                .openingConfirmed(false)
+                .locked(false)
+                .build();
+        return buildSummary(notOpened, List.of(), creditRepo.findByShopCodeAndTransactionDate(shop.getCode(), date));
+    }
+    /**
+     * Read-only daily screens for every date of a range, oldest first
+     * Days, transactions and credits are each loaded once for the whole range and grouped in memory,
+     * so the query count does not depend on the number of days
+     */
+    @Transactional(readOnly = true)
+    public List<DailyCashSummaryDTO> getDailyCashSummaries(Long shopId, LocalDate startDate, LocalDate endDate) {
+        Shop shop = shopRepo.findById(shopId)
+                .orElseThrow(() -> new RuntimeException("Shop not found"));
+        Map<LocalDate, DailyCash> days = new HashMap<>();
+        for (DailyCash dc : dailyCashRepo.findWithShopByShopIdAndBusinessDateBetween(shopId, startDate, endDate)) {
+            days.put(dc.getBusinessDate(), dc);
+        }
+        Map<Long, List<CashTransaction>> transactionsByDay = cashTransactionRepo
+                .findWithDetailsByShopIdAndBusinessDateBetween(shopId, startDate, endDate).stream()
+                .collect(Collectors.groupingBy(ct -> ct.getDailyCash().getId()));
+        Map<LocalDate, List<Credit>> creditsByDate = creditRepo
+                .findByShopCodeAndTransactionDateBetween(shop.getCode(), startDate, endDate).stream()
+                .collect(Collectors.groupingBy(Credit::getTransactionDate));
+        List<DailyCashSummaryDTO> summaries = new ArrayList<>();
+        // A day that was never opened gets the opening cash it would be created with,
+        // taken from the last day before it exactly as previousClosingCash does
+        DailyCash lastDay = null;
+        double openingBeforeRange = days.containsKey(startDate) ? 0.0 : previousClosingCash(shopId, startDate);
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            DailyCash dailyCash = days.get(date);
+            if (dailyCash == null) {
+                double openingCash = lastDay != null ? openingCashAfter(lastDay) : openingBeforeRange;
+                dailyCash = DailyCash.builder()
+                        .shop(shop)
+                        .businessDate(date)
+                        .openingCash(openingCash)
+                        .openingConfirmed(false)
+                        .locked(false)
+                        .build();
+            } else {
+                lastDay = dailyCash;
+            }
+            summaries.add(buildSummary(dailyCash,
+                    dailyCash.getId() != null ? transactionsByDay.getOrDefault(dailyCash.getId(), List.of()) : List.of(),
+                    creditsByDate.getOrDefault(date, List.of())));
+        }
+        return summaries;
+    }
+    private DailyCashSummaryDTO buildSummary(DailyCash dailyCash, List<CashTransaction> allTransactions, List<Credit> creditList) {
+        List<CashTransactionDTO> expenses = new ArrayList<>();
+        List<CashTransactionDTO> sales = new ArrayList<>();
+        double totalExpenses = 0.0;
+        double manualSales = 0.0;
+        for (CashTransaction ct : allTransactions) {
+            if ("EXPENSE".equals(ct.getType())) {
+                expenses.add(CashTransactionDTO.from(ct));
+                totalExpenses += ct.getAmount() != null ? ct.getAmount() : 0.0;
+            } else if ("SALE".equals(ct.getType())) {
+                sales.add(CashTransactionDTO.from(ct));
+                manualSales += ct.getAmount() != null ? ct.getAmount() : 0.0;
+            }
+        }
+        // Credits for this shop on this date (matched by department = shop code)
+        List<OSD_CreditDTO> credits = new ArrayList<>();
+        double totalCredits = 0.0;
+        for (Credit credit : creditList) {
+            credits.add(convertCreditToDTO(credit));
+            totalCredits += credit.getAmount() != null ? credit.getAmount() : 0.0;
+        }
         // Calculate total sales if day is closed
         Double totalSales = null;
         Double variance = null;
@@ -197,6 +368,9 @@ public void addExpense(Long dailyCashId, Double amount, Long expenseTypeId, Stri
             .createdAt(LocalDateTime.now())
             .build();
     CashTransaction saved = cashTransactionRepo.save(transaction);
+    reportCache.invalidate(dailyCash.getBusinessDate());
+    // Move the day's summary (stored if closed, live if open) by this expense
+    dailySummaryService.applyTransactionDelta(dailyCash, "EXPENSE", amount, 1);
     // Create audit log
     java.util.Map<String, Object> newValues = new java.util.HashMap<>();
     newValues.put("id", saved.getId());
@@ -224,6 +398,8 @@ public void addManualSale(Long dailyCashId, Double amount, String description, U
             .createdAt(LocalDateTime.now())
             .build();
     CashTransaction saved = cashTransactionRepo.save(transaction);
+    reportCache.invalidate(dailyCash.getBusinessDate());
+    dailySummaryService.applyTransactionDelta(dailyCash, "SALE", amount, 1);
     // Create audit log
     java.util.Map<String, Object> newValues = new java.util.HashMap<>();
     newValues.put("id", saved.getId());
@@ -233,6 +409,82 @@ public void addManualSale(Long dailyCashId, Double amount, String description, U
     newValues.put("description", description);
     auditLogService.createAuditLog(user, "CREATE", "CASH_TRANSACTION", saved.getId(), null, newValues);
 }
+/**
+ * Add many expenses and manual sales to one daily cash in one transaction
+ * Expense types are resolved with one query; transactions and audit entries are inserted as JDBC batches
+ * @return ids of the created transactions, expenses first, in request order
+ */
+@Transactional
+public List<Long> addTransactionsBatch(Long dailyCashId, CashTransactionBatchRequest request, User user) {
+    DailyCash dailyCash = dailyCashRepo.findById(dailyCashId)
+            .orElseThrow(() -> new RuntimeException("Daily cash not found"));
+    List<CashTransactionBatchRequest.Item> expenses = request.getExpenses() != null ? request.getExpenses() : List.of();
+    List<CashTransactionBatchRequest.Item> sales = request.getSales() != null ? request.getSales() : List.of();
+    if (expenses.isEmpty() && sales.isEmpty()) {
+        throw new RuntimeException("No expenses or sales given");
+    }
+    for (CashTransactionBatchRequest.Item item : expenses) {
+        if (item.getAmount() == null) {
+            throw new RuntimeException("amount is required");
+        }
+    }
+    for (CashTransactionBatchRequest.Item item : sales) {
+        if (item.getAmount() == null) {
+            throw new RuntimeException("amount is required");
+        }
+    }
+    // Unknown expense types are stored as none, like addExpense does
+    Map<Long, ExpenseType> expenseTypes = expenseTypeRepo.findAllById(expenses.stream()
+                    .map(CashTransactionBatchRequest.Item::getExpenseTypeId)
+                    .filter(java.util.Objects::nonNull)
+                    .collect(Collectors.toSet())).stream()
+            .collect(Collectors.toMap(ExpenseType::getId, et -> et));
+    LocalDateTime now = LocalDateTime.now();
+    List<CashTransaction> transactions = new ArrayList<>();
+    for (CashTransactionBatchRequest.Item item : expenses) {
+        transactions.add(CashTransaction.builder()
+                .dailyCash(dailyCash)
+                .type("EXPENSE")
+                .amount(item.getAmount())
+                .expenseType(item.getExpenseTypeId() != null ? expenseTypes.get(item.getExpenseTypeId()) : null)
+                .description(item.getDescription())
+                .recordedBy(user)
+                .createdAt(now)
+                .build());
+    }
+    for (CashTransactionBatchRequest.Item item : sales) {
+        transactions.add(CashTransaction.builder()
+                .dailyCash(dailyCash)
+                .type("SALE")
+                .amount(item.getAmount())
+                .description(item.getDescription())
+                .recordedBy(user)
+                .createdAt(now)
+                .build());
+    }
+    List<CashTransaction> saved = cashTransactionRepo.saveAll(transactions);
+    List<Long> ids = new ArrayList<>();
+    Map<Long, Map<String, Object>> auditByEntityId = new java.util.LinkedHashMap<>();
+    for (CashTransaction ct : saved) {
+        ids.add(ct.getId());
+        Map<String, Object> newValues = new HashMap<>();
+        newValues.put("id", ct.getId());
+        newValues.put("dailyCashId", dailyCashId);
+        newValues.put("type", ct.getType());
+        newValues.put("amount", ct.getAmount());
+        if ("EXPENSE".equals(ct.getType())) {
+            newValues.put("expenseTypeId", ct.getExpenseType() != null ? ct.getExpenseType().getId() : null);
+        }
+        newValues.put("description", ct.getDescription());
+        auditByEntityId.put(ct.getId(), newValues);
+    }
+    auditLogService.createAuditLogs(user, "CREATE", "CASH_TRANSACTION", auditByEntityId);
+    reportCache.invalidate(dailyCash.getBusinessDate());
+    double expenseTotal = expenses.stream().mapToDouble(CashTransactionBatchRequest.Item::getAmount).sum();
+    dailySummaryService.applyDelta(dailyCash.getShop().getId(), dailyCash.getBusinessDate(),
+            expenseTotal, expenses.size(), sales.size(), 0.0, 0);
+    return ids;
+}
 /**
  * Close the day by setting closing cash and locking
  */
@@ -248,11 +500,14 @@ public void closeDay(Long dailyCashId, Double closingCash, User user) {
     oldValues.put("closingCash", dailyCash.getClosingCash());
     oldValues.put("locked", dailyCash.getLocked());
     oldValues.put("closedBy", dailyCash.getClosedBy() != null ? dailyCash.getClosedBy().getId() : null);
+    Double oldClosingCash = dailyCash.getClosingCash();
     dailyCash.setClosingCash(closingCash);
     dailyCash.setLocked(true);
     dailyCash.setClosedBy(user);
     dailyCash.setClosedAt(LocalDateTime.now());
     DailyCash saved = dailyCashRepo.save(dailyCash);
+    reportCache.invalidate(saved.getBusinessDate());
+    recordLatest(saved);
     // Create audit log
     java.util.Map<String, Object> newValues = new java.util.HashMap<>();
     newValues.put("closingCash", closingCash);
@@ -260,9 +515,11 @@ public void closeDay(Long dailyCashId, Double closingCash, User user) {
     newValues.put("closedBy", user.getId());
     newValues.put("closedAt", saved.getClosedAt().toString());
     auditLogService.createAuditLog(user, "CLOSE_DAY", "DAILY_CASH", dailyCashId, oldValues, newValues);
+    // A day closed late may already have a next day that opened with 0
+    propagateOpeningBalance(saved, oldClosingCash);
     // âœ… NEW: Automatically calculate and save daily summary for performance optimization
     try {
-        dailySummaryService.calculateAndSaveDailySummary(saved);
+        dailySummaryService.saveClosedDaySummary(saved);
     } catch (Exception e) {
         log.error("Failed to calculate daily summary: {}", e.getMessage(), e);
         // Don't fail the transaction if summary calculation fails
@@ -312,6 +569,8 @@ public void closeDay(Long dailyCashId, Double closingCash, User user) {
         dailyCash.setOpeningCash(openingCash);
         dailyCash.setOpeningConfirmed(true);
         DailyCash saved = dailyCashRepo.save(dailyCash);
+        reportCache.invalidate(saved.getBusinessDate());
+        dailySummaryService.evictLive(saved.getShop().getId(), saved.getBusinessDate());
 
         // Prepare new values for audit (include full context per spec)
         java.util.Map<String, Object> newValues = new java.util.HashMap<>();
@@ -344,6 +603,7 @@ public void closeDay(Long dailyCashId, Double closingCash, User user) {
         oldValues.put("openingCash", dailyCash.getOpeningCash());
         oldValues.put("closingCash", dailyCash.getClosingCash());
         oldValues.put("locked", dailyCash.getLocked());
+        Double oldClosingCash = dailyCash.getClosingCash();
         // Update fields
         if (updates.containsKey("openingCash")) {
             dailyCash.setOpeningCash(((Number) updates.get("openingCash")).doubleValue());
@@ -358,6 +618,9 @@ public void closeDay(Long dailyCashId, Double closingCash, User user) {
             dailyCash.setOpeningConfirmed((Boolean) updates.get("openingConfirmed"));
         }
         DailyCash saved = dailyCashRepo.save(dailyCash);
+        reportCache.invalidate(saved.getBusinessDate());
+        dailySummaryService.evictLive(saved.getShop().getId(), saved.getBusinessDate());
+        recordLatest(saved);
         // Create audit log
         java.util.Map<String, Object> newValues = new java.util.HashMap<>();
         newValues.put("openingCash", saved.getOpeningCash());
@@ -372,6 +635,42 @@ public void closeDay(Long dailyCashId, Double closingCash, User user) {
                 log.error("Failed to recalculate daily summary: {}", e.getMessage(), e);
             }
         }
+        propagateOpeningBalance(saved, oldClosingCash);
+    }
+    /**
+     * Carry a changed closing balance into the opening cash of the shop's next day
+     * The chain converges right there: the next day's own closing is counted cash and does not change,
+     * so the days after it keep their openings and older corrections never rescan history.
+     * An opening that was not carried over from the old closing (set by hand) is left alone.
+     * @return true if the next day's opening cash was updated
+     */
+    private boolean propagateOpeningBalance(DailyCash changed, Double oldClosingCash) {
+        double oldCarry = oldClosingCash != null ? oldClosingCash : 0.0;
+        double newCarry = changed.getClosingCash() != null ? changed.getClosingCash() : 0.0;
+        if (oldCarry == newCarry) {
+            return false;
+        }
+        List<DailyCash> next = dailyCashRepo.findByShopIdAndBusinessDateAfter(
+                changed.getShop().getId(), changed.getBusinessDate(), PageRequest.of(0, 1));
+        if (next.isEmpty()) {
+            return false;
+        }
+        DailyCash day = next.get(0);
+        if (day.getOpeningCash() == null || day.getOpeningCash() != oldCarry) {
+            return false;
+        }
+        day.setOpeningCash(newCarry);
+        dailyCashRepo.save(day);
+        reportCache.invalidate(day.getBusinessDate());
+        dailySummaryService.evictLive(day.getShop().getId(), day.getBusinessDate());
+        if (day.getLocked()) {
+            try {
+                dailySummaryService.calculateAndSaveDailySummary(day);
+            } catch (Exception e) {
+                log.error("Failed to recalculate daily summary: {}", e.getMessage(), e);
+            }
+        }
+        return true;
     }
     /**
      * Delete daily cash record (SUPERADMIN only)
@@ -393,6 +692,10 @@ public void closeDay(Long dailyCashId, Double closingCash, User user) {
         auditLogService.createAuditLog(user, "DELETE", "DAILY_CASH", dailyCashId, oldValues, null);
         // Delete daily cash (transactions will cascade if configured)
         dailyCashRepo.delete(dailyCash);
+        reportCache.invalidate(dailyCash.getBusinessDate());
+        dailySummaryService.evictLive(dailyCash.getShop().getId(), dailyCash.getBusinessDate());
+        // The shop's latest day may be gone; reload the index on next read
+        resetShopsSummary();
     }
     /**
      * Manually recalculate daily summary for a specific day (SUPERADMIN only)
@@ -406,20 +709,5 @@ public void closeDay(Long dailyCashId, Double closingCash, User user) {
         }
         dailySummaryService.calculateAndSaveDailySummary(dailyCash);
     }
-
-    /**
-     * Recalculate ALL daily summaries for closed days (SUPERADMIN only)
-     * Use after fixing calculation bugs
-     */
-    @Transactional
-    public int recalculateAllSummaries() {
-        List<DailyCash> closedDays = dailyCashRepo.findAll().stream()
-                .filter(DailyCash::getLocked)
-                .collect(java.util.stream.Collectors.toList());
-        for (DailyCash dailyCash : closedDays) {
-            dailySummaryService.calculateAndSaveDailySummary(dailyCash);
-        }
-        return closedDays.size();
-    }
 }
 
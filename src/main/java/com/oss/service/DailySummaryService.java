@@ -1,10 +1,18 @@
 package com.oss.service;
+import com.oss.dto.DailySummaryDTO;
 import com.oss.model.*;
 import com.oss.repository.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 /**
  * Daily Summary Service - Automatically calculates and caches daily metrics
@@ -17,16 +25,28 @@ public class DailySummaryService {
     private final CashTransactionRepository cashTransactionRepo;
     private final CreditRepository creditRepo;
     private final AttendanceRepository attendanceRepo;
+    private final MonthlySummaryService monthlySummaryService;
+    private final ReportCacheService reportCache;
+    // Running summaries of open days keyed by shopId:businessDate, seeded on first read and moved by each write
+    // Closed days are served from daily_summaries; closing a day flushes its entry there
+    private final Map<String, DailySummary> liveDays = new ConcurrentHashMap<>();
+    // Guarded by liveDays: a seed read while a change is pending or committed is not kept
+    private int pendingLiveChanges = 0;
+    private long liveGeneration = 0;
     public DailySummaryService(DailySummaryRepository dailySummaryRepo,
                                DailyCashRepository dailyCashRepo,
                                CashTransactionRepository cashTransactionRepo,
                                CreditRepository creditRepo,
-                               AttendanceRepository attendanceRepo) {
+                               AttendanceRepository attendanceRepo,
+                               MonthlySummaryService monthlySummaryService,
+                               ReportCacheService reportCache) {
         this.dailySummaryRepo = dailySummaryRepo;
         this.dailyCashRepo = dailyCashRepo;
         this.cashTransactionRepo = cashTransactionRepo;
         this.creditRepo = creditRepo;
         this.attendanceRepo = attendanceRepo;
+        this.monthlySummaryService = monthlySummaryService;
+        this.reportCache = reportCache;
     }
     /**
      * Calculate and save daily summary when a day is closed
@@ -34,58 +54,170 @@ public class DailySummaryService {
      */
     @Transactional
     public DailySummary calculateAndSaveDailySummary(DailyCash dailyCash) {
-        Shop shop = dailyCash.getShop();
-        LocalDate businessDate = dailyCash.getBusinessDate();
         // Check if summary already exists
-        DailySummary existing = dailySummaryRepo.findByShopAndBusinessDate(shop, businessDate).orElse(null);
+        DailySummary existing = dailySummaryRepo.findByShopAndBusinessDate(dailyCash.getShop(), dailyCash.getBusinessDate()).orElse(null);
         if (existing != null) {
             // Update existing summary
             return updateDailySummary(existing, dailyCash);
         }
-        // Calculate all metrics
-        Double openingCash = dailyCash.getOpeningCash();
-        Double closingCash = dailyCash.getClosingCash();
-        Double cashDifference = closingCash != null ? closingCash - openingCash : 0.0;
-        // Get expenses for this day
-        List<CashTransaction> allTransactions = cashTransactionRepo.findByDailyCashId(dailyCash.getId());
-        List<CashTransaction> shopExpenses = allTransactions.stream()
+        return saveComputedSummary(computeFor(dailyCash), null);
+    }
+    /**
+     * Update existing daily summary
+     */
+    @Transactional
+    public DailySummary updateDailySummary(DailySummary existing, DailyCash dailyCash) {
+        return saveComputedSummary(computeFor(dailyCash), existing);
+    }
+    /**
+     * Write a summary built by computeSummary, copying it onto the existing row of its day if there is one
+     * @param existing the stored summary for the same shop and day, or null if the day is new
+     */
+    @Transactional
+    public DailySummary saveComputedSummary(DailySummary computed, DailySummary existing) {
+        reportCache.invalidate(computed.getBusinessDate());
+        if (existing == null) {
+            DailySummary saved = dailySummaryRepo.save(computed);
+            // Roll the new day into its month
+            monthlySummaryService.applyDailyDelta(null, saved);
+            return saved;
+        }
+        // Keep the previous totals so only the difference is rolled into the month
+        DailySummary before = MonthlySummaryService.snapshot(existing);
+        copyMetrics(computed, existing);
+        DailySummary saved = dailySummaryRepo.save(existing);
+        monthlySummaryService.applyDailyDelta(before, saved);
+        return saved;
+    }
+    /**
+     * Apply the signed change of one expense or manual sale write to its day's summary and month
+     * @param type        EXPENSE or SALE
+     * @param amountDelta change in the amount (negative for a removal)
+     * @param countDelta  +1 for an added transaction, -1 for a removed one, 0 for an edit
+     */
+    @Transactional
+    public void applyTransactionDelta(DailyCash dailyCash, String type, double amountDelta, int countDelta) {
+        if ("EXPENSE".equals(type)) {
+            applyDelta(dailyCash.getShop().getId(), dailyCash.getBusinessDate(), amountDelta, countDelta, 0, 0.0, 0);
+        } else if ("SALE".equals(type)) {
+            // Manual sales only count toward manualSaleCount
+            applyDelta(dailyCash.getShop().getId(), dailyCash.getBusinessDate(), 0.0, 0, countDelta, 0.0, 0);
+        }
+    }
+    /**
+     * Apply the signed change of one credit write to the summary of its shop and date, and to the month
+     */
+    @Transactional
+    public void applyCreditDelta(Long shopId, LocalDate businessDate, double amountDelta, int countDelta) {
+        applyDelta(shopId, businessDate, 0.0, 0, 0, amountDelta, countDelta);
+    }
+    /**
+     * Move a day's summary and its month by the given changes without rescanning the day
+     * A closed day is updated in daily_summaries; an open day's live summary, if loaded, is updated on commit
+     */
+    @Transactional
+    public void applyDelta(Long shopId, LocalDate businessDate, double expenses, int expenseCount, int saleCount,
+                           double credits, int creditCount) {
+        long now = System.currentTimeMillis();
+        int updated = dailySummaryRepo.applyDelta(shopId, businessDate, expenses, expenseCount, saleCount, credits, creditCount, now);
+        if (updated > 0) {
+            dailySummaryRepo.refreshLoaded(shopId, businessDate);
+            monthlySummaryService.applyTotalsDelta(shopId, businessDate, expenses, expenseCount, saleCount, credits, creditCount, now);
+        }
+        reportCache.invalidate(businessDate);
+        String key = key(shopId, businessDate);
+        changeLive(() -> liveDays.computeIfPresent(key,
+                (k, live) -> withDelta(live, expenses, expenseCount, saleCount, credits, creditCount)));
+    }
+    /**
+     * Write the summary of a day being closed
+     * The live running totals of the day become its stored summary without rescanning its rows;
+     * a day never read while open is calculated in full
+     */
+    @Transactional
+    public DailySummary saveClosedDaySummary(DailyCash dailyCash) {
+        String key = key(dailyCash.getShop().getId(), dailyCash.getBusinessDate());
+        DailySummary live = liveDays.get(key);
+        if (live == null) {
+            return calculateAndSaveDailySummary(dailyCash);
+        }
+        changeLive(() -> liveDays.remove(key));
+        DailySummary computed = computeSummary(dailyCash, live.getTotalExpenses(), live.getExpenseCount(),
+                live.getManualSaleCount(), live.getTotalCredits(), live.getCreditCount(), live.getStaffCount(),
+                (int) Math.round(live.getTotalAttendanceHours() / 8.0));
+        DailySummary existing = dailySummaryRepo.findByShopAndBusinessDate(dailyCash.getShop(), dailyCash.getBusinessDate()).orElse(null);
+        return saveComputedSummary(computed, existing);
+    }
+    /**
+     * Drop the live summary of a day whose cash figures changed (it is seeded again on next read)
+     */
+    public void evictLive(Long shopId, LocalDate businessDate) {
+        String key = key(shopId, businessDate);
+        changeLive(() -> liveDays.remove(key));
+    }
+    /**
+     * Drop the live summaries of every shop on a date, e.g. after an attendance change
+     */
+    public void evictLive(LocalDate businessDate) {
+        String suffix = ":" + businessDate;
+        changeLive(() -> liveDays.keySet().removeIf(key -> key.endsWith(suffix)));
+    }
+    private DailySummary computeFor(DailyCash dailyCash) {
+        List<CashTransaction> transactions = cashTransactionRepo.findByDailyCashId(dailyCash.getId());
+        List<Credit> credits = creditRepo.findByShopAndTransactionDate(dailyCash.getShop(), dailyCash.getBusinessDate());
+        // ✅ OPTIMIZED: Query only records for this date instead of loading ALL records
+        List<Attendance> attendances = attendanceRepo.findByWorkDate(dailyCash.getBusinessDate());
+        return computeSummary(dailyCash, transactions, credits, attendances);
+    }
+    /**
+     * Build the (unsaved) summary of a day from its already loaded rows
+     * Touches no repository, so it is safe to call from worker threads
+     * @param transactions the day's cash transactions
+     * @param credits      the shop's credits on the business date
+     * @param attendances  all attendance records on the business date
+     */
+    public static DailySummary computeSummary(DailyCash dailyCash, List<CashTransaction> transactions,
+                                              List<Credit> credits, List<Attendance> attendances) {
+        List<CashTransaction> shopExpenses = transactions.stream()
                 .filter(ct -> "EXPENSE".equals(ct.getType()))
                 .collect(Collectors.toList());
-        Double totalExpenses = shopExpenses.stream()
+        double totalExpenses = shopExpenses.stream()
                 .mapToDouble(CashTransaction::getAmount)
                 .sum();
-
         // Get manual sales count for this daily_cash
-        List<CashTransaction> shopSales = allTransactions.stream()
+        long manualSaleCount = transactions.stream()
                 .filter(ct -> "SALE".equals(ct.getType()))
-                .collect(Collectors.toList());
-        int manualSaleCount = shopSales.size();
-        // Get credits for this day using shop parameter
-        List<Credit> credits = creditRepo.findByShopAndTransactionDate(shop, businessDate);
-        Double totalCredits = credits.stream()
+                .count();
+        double totalCredits = credits.stream()
                 .mapToDouble(Credit::getAmount)
                 .sum();
+        // ✅ NEW LOGIC: Count working days (8 hours per working day)
+        long workingCount = attendances.stream()
+                .filter(a -> a.getIsWorking() != null && a.getIsWorking())
+                .count();
+        return computeSummary(dailyCash, totalExpenses, shopExpenses.size(), (int) manualSaleCount,
+                totalCredits, credits.size(), attendances.size(), (int) workingCount);
+    }
+    /**
+     * Build the (unsaved) summary of a day from its pre-aggregated totals
+     * @param staffCount   attendance records on the business date
+     * @param workingCount of those, the ones marked as working
+     */
+    public static DailySummary computeSummary(DailyCash dailyCash, double totalExpenses, int expenseCount,
+                                              int manualSaleCount, double totalCredits, int creditCount,
+                                              int staffCount, int workingCount) {
+        Double openingCash = dailyCash.getOpeningCash();
+        Double closingCash = dailyCash.getClosingCash();
+        Double cashDifference = closingCash != null ? closingCash - openingCash : 0.0;
         // Calculate revenue: (Closing - Opening) + Expenses
         Double totalRevenue = cashDifference + totalExpenses;
         // Calculate net sales: Revenue - Credits
         Double netSales = totalRevenue - totalCredits;
         // Calculate profit: Revenue - Expenses
         Double profit = totalRevenue - totalExpenses;
-
-        // Get staff metrics - find attendances by business date
-        // ✅ OPTIMIZED: Query only records for this date instead of loading ALL records
-        List<Attendance> attendances = attendanceRepo.findByWorkDate(businessDate);
-
-        Integer staffCount = attendances.size();
-        // ✅ NEW LOGIC: Count working days and calculate hours (8 hours per working day)
-        Double totalAttendanceHours = attendances.stream()
-                .filter(a -> a.getIsWorking() != null && a.getIsWorking())
-                .mapToDouble(a -> 8.0) // Standard 8-hour workday
-                .sum();
-        // Build and save summary
-        DailySummary summary = DailySummary.builder()
-                .shop(shop)
-                .businessDate(businessDate)
+        return DailySummary.builder()
+                .shop(dailyCash.getShop())
+                .businessDate(dailyCash.getBusinessDate())
                 .openingCash(openingCash)
                 .closingCash(closingCash)
                 .cashDifference(cashDifference)
@@ -94,11 +226,11 @@ public class DailySummaryService {
                 .totalCredits(totalCredits)
                 .netSales(netSales)
                 .profit(profit)
-                .expenseCount(shopExpenses.size())
-                .creditCount(credits.size())
+                .expenseCount(expenseCount)
+                .creditCount(creditCount)
                 .manualSaleCount(manualSaleCount)
                 .staffCount(staffCount)
-                .totalAttendanceHours(totalAttendanceHours)
+                .totalAttendanceHours(workingCount * 8.0) // Standard 8-hour workday
                 .isClosed(dailyCash.getLocked())
                 .closedById(dailyCash.getClosedBy() != null ? dailyCash.getClosedBy().getId() : null)
                 .closedByUser(dailyCash.getClosedBy())
@@ -106,93 +238,321 @@ public class DailySummaryService {
                     dailyCash.getClosedAt().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli() : null)
                 .calculatedAt(System.currentTimeMillis())
                 .build();
-        return dailySummaryRepo.save(summary);
     }
     /**
-     * Update existing daily summary
+     * Recalculate the summaries of all closed days in a date range (for data migration or corrections)
+     * Totals come from one grouped query per source table instead of several queries per day,
+     * and the rows and their months are written in JDBC batches
+     * @return number of summaries written
      */
     @Transactional
-    public DailySummary updateDailySummary(DailySummary existing, DailyCash dailyCash) {
-        Shop shop = dailyCash.getShop();
-        LocalDate businessDate = dailyCash.getBusinessDate();
-        // Recalculate all metrics
-        Double openingCash = dailyCash.getOpeningCash();
-        Double closingCash = dailyCash.getClosingCash();
-        Double cashDifference = closingCash != null ? closingCash - openingCash : 0.0;
-
-        // Get all transactions for this daily_cash
-        List<CashTransaction> allTransactions = cashTransactionRepo.findByDailyCashId(dailyCash.getId());
-        List<CashTransaction> shopExpenses = allTransactions.stream()
-                .filter(ct -> "EXPENSE".equals(ct.getType()))
-                .collect(Collectors.toList());
-        Double totalExpenses = shopExpenses.stream()
-                .mapToDouble(CashTransaction::getAmount)
-                .sum();
-
-        // Get manual sales count for this daily_cash
-        List<CashTransaction> shopSales = allTransactions.stream()
-                .filter(ct -> "SALE".equals(ct.getType()))
-                .collect(Collectors.toList());
-        int manualSaleCount = shopSales.size();
-
-        List<Credit> credits = creditRepo.findByShopAndTransactionDate(shop, businessDate);
-        Double totalCredits = credits.stream()
-                .mapToDouble(Credit::getAmount)
-                .sum();
-        Double totalRevenue = cashDifference + totalExpenses;
-        Double netSales = totalRevenue - totalCredits;
-        Double profit = totalRevenue - totalExpenses;
-
-        // ✅ OPTIMIZED: Query only records for this date instead of loading ALL records
-        List<Attendance> attendances = attendanceRepo.findByWorkDate(businessDate);
-
-        Integer staffCount = attendances.size();
-        // ✅ NEW LOGIC: Count working days and calculate hours (8 hours per working day)
-        Double totalAttendanceHours = attendances.stream()
-                .filter(a -> a.getIsWorking() != null && a.getIsWorking())
-                .mapToDouble(a -> 8.0) // Standard 8-hour workday
-                .sum();
-        // Update existing summary
-        existing.setOpeningCash(openingCash);
-        existing.setClosingCash(closingCash);
-        existing.setCashDifference(cashDifference);
-        existing.setTotalRevenue(totalRevenue);
-        existing.setTotalExpenses(totalExpenses);
-        existing.setTotalCredits(totalCredits);
-        existing.setNetSales(netSales);
-        existing.setProfit(profit);
-        existing.setExpenseCount(shopExpenses.size());
-        existing.setCreditCount(credits.size());
-        existing.setManualSaleCount(manualSaleCount);
-        existing.setStaffCount(staffCount);
-        existing.setTotalAttendanceHours(totalAttendanceHours);
-        existing.setIsClosed(dailyCash.getLocked());
-        existing.setClosedById(dailyCash.getClosedBy() != null ? dailyCash.getClosedBy().getId() : null);
-        existing.setClosedByUser(dailyCash.getClosedBy());
-        existing.setClosedAt(dailyCash.getClosedAt() != null ?
-            dailyCash.getClosedAt().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli() : null);
-        existing.setCalculatedAt(System.currentTimeMillis());
-        return dailySummaryRepo.save(existing);
-    }
-    /**
-     * Recalculate summaries for a date range (for data migration or corrections)
+    public int recalculateSummaries(LocalDate startDate, LocalDate endDate) {
+        List<DailyCash> days = dailyCashRepo.findLockedWithShopByBusinessDateBetween(startDate, endDate);
+        if (days.isEmpty()) {
+            return 0;
+        }
+        return saveComputedSummaries(computeAll(days)).size();
+    }
+    /**
+     * Build the (unsaved) summaries of many days with one grouped query per source table,
+     * covering the dates from the first to the last of the days
+     */
+    private List<DailySummary> computeAll(List<DailyCash> days) {
+        if (days.isEmpty()) {
+            return List.of();
+        }
+        LocalDate startDate = days.get(0).getBusinessDate();
+        LocalDate endDate = startDate;
+        for (DailyCash day : days) {
+            if (day.getBusinessDate().isBefore(startDate)) {
+                startDate = day.getBusinessDate();
+            }
+            if (day.getBusinessDate().isAfter(endDate)) {
+                endDate = day.getBusinessDate();
+            }
+        }
+        // dailyCashId -> {expenseTotal, expenseCount, saleCount}
+        Map<Long, Object[]> transactionTotals = new HashMap<>();
+        for (Object[] row : cashTransactionRepo.sumByDailyCashForBusinessDateBetween(startDate, endDate)) {
+            transactionTotals.put((Long) row[0], row);
+        }
+        // shopId:date -> {shopId, date, total, count}
+        Map<String, Object[]> creditTotals = new HashMap<>();
+        for (Object[] row : creditRepo.sumByShopAndTransactionDateBetween(startDate, endDate)) {
+            creditTotals.put(row[0] + ":" + row[1], row);
+        }
+        // date -> {date, recordCount, workingCount}
+        Map<LocalDate, Object[]> attendanceCounts = new HashMap<>();
+        for (Object[] row : attendanceRepo.countByWorkDateBetween(startDate, endDate)) {
+            attendanceCounts.put((LocalDate) row[0], row);
+        }
+        List<DailySummary> computed = new ArrayList<>(days.size());
+        for (DailyCash day : days) {
+            Object[] tx = transactionTotals.get(day.getId());
+            Object[] cr = creditTotals.get(day.getShop().getId() + ":" + day.getBusinessDate());
+            Object[] att = attendanceCounts.get(day.getBusinessDate());
+            computed.add(computeSummary(day,
+                    tx != null ? ((Number) tx[1]).doubleValue() : 0.0,
+                    tx != null ? ((Number) tx[2]).intValue() : 0,
+                    tx != null ? ((Number) tx[3]).intValue() : 0,
+                    cr != null ? ((Number) cr[2]).doubleValue() : 0.0,
+                    cr != null ? ((Number) cr[3]).intValue() : 0,
+                    att != null ? ((Number) att[1]).intValue() : 0,
+                    att != null && att[2] != null ? ((Number) att[2]).intValue() : 0));
+        }
+        return computed;
+    }
+    /**
+     * Write many summaries built by computeSummary in one pass
+     * Existing rows of the same days are loaded with one range query and updated in place,
+     * and each affected month is rolled up once
+     * @return the summaries as written
+     */
+    @Transactional
+    public List<DailySummary> saveComputedSummaries(List<DailySummary> computed) {
+        return saveComputedSummaries(computed, null);
+    }
+    /**
+     * Write many summaries built by computeSummary, leaving out days whose stored summary changed after
+     * their sources were read, so a delta applied in between is not overwritten with older totals
+     * @param readVersions calculatedAt of each stored summary when the sources were read, by "shopId:date",
+     *                     with no entry for days that had none; null to write every day
+     * @return the summaries as written, without the days left out
      */
     @Transactional
-    public void recalculateSummaries(LocalDate startDate, LocalDate endDate) {
-        List<DailyCash> dailyCashList = dailyCashRepo.findByBusinessDateBetween(startDate, endDate);
-        for (DailyCash dailyCash : dailyCashList) {
-            if (dailyCash.getLocked()) {
-                calculateAndSaveDailySummary(dailyCash);
+    public List<DailySummary> saveComputedSummaries(List<DailySummary> computed, Map<String, Long> readVersions) {
+        if (computed.isEmpty()) {
+            return computed;
+        }
+        LocalDate startDate = computed.stream().map(DailySummary::getBusinessDate).min(LocalDate::compareTo).get();
+        LocalDate endDate = computed.stream().map(DailySummary::getBusinessDate).max(LocalDate::compareTo).get();
+        Map<String, DailySummary> existing = new HashMap<>();
+        for (DailySummary summary : dailySummaryRepo.findByBusinessDateBetween(startDate, endDate)) {
+            existing.put(summary.getShop().getId() + ":" + summary.getBusinessDate(), summary);
+        }
+        List<DailySummary> before = new ArrayList<>(computed.size());
+        List<DailySummary> after = new ArrayList<>(computed.size());
+        for (DailySummary summary : computed) {
+            String key = summary.getShop().getId() + ":" + summary.getBusinessDate();
+            DailySummary current = existing.get(key);
+            if (readVersions != null && changedSinceRead(current, key, readVersions)) {
+                continue;
             }
+            if (current == null) {
+                before.add(null);
+                after.add(summary);
+            } else {
+                before.add(MonthlySummaryService.snapshot(current));
+                copyMetrics(summary, current);
+                after.add(current);
+            }
+        }
+        if (after.isEmpty()) {
+            return after;
+        }
+        List<DailySummary> saved = dailySummaryRepo.saveAll(after);
+        monthlySummaryService.applyDailyDeltas(before, after);
+        reportCache.invalidateAll();
+        return saved;
+    }
+    private static boolean changedSinceRead(DailySummary current, String key, Map<String, Long> readVersions) {
+        if (!readVersions.containsKey(key)) {
+            return current != null;
         }
+        return current == null || !Objects.equals(current.getCalculatedAt(), readVersions.get(key));
     }
+    private static void copyMetrics(DailySummary from, DailySummary to) {
+        to.setOpeningCash(from.getOpeningCash());
+        to.setClosingCash(from.getClosingCash());
+        to.setCashDifference(from.getCashDifference());
+        to.setTotalRevenue(from.getTotalRevenue());
+        to.setTotalExpenses(from.getTotalExpenses());
+        to.setTotalCredits(from.getTotalCredits());
+        to.setNetSales(from.getNetSales());
+        to.setProfit(from.getProfit());
+        to.setExpenseCount(from.getExpenseCount());
+        to.setCreditCount(from.getCreditCount());
+        to.setManualSaleCount(from.getManualSaleCount());
+        to.setStaffCount(from.getStaffCount());
+        to.setTotalAttendanceHours(from.getTotalAttendanceHours());
+        to.setIsClosed(from.getIsClosed());
+        to.setClosedById(from.getClosedById());
+        to.setClosedByUser(from.getClosedByUser());
+        to.setClosedAt(from.getClosedAt());
+        to.setCalculatedAt(from.getCalculatedAt());
+    }
+    /**
+     * Summary of one shop-day: the stored summary of a closed day, or the live running summary of an open one
+     * Once an open day has been read, later reads cost no queries
+     * @return null if the shop has no day on that date
+     */
     public DailySummary getSummary(Long shopId, LocalDate businessDate) {
-        return dailySummaryRepo.findByShop_IdAndBusinessDate(shopId, businessDate).orElse(null);
+        DailySummary live = liveDays.get(key(shopId, businessDate));
+        if (live != null) {
+            return live;
+        }
+        long generation = liveGenerationIfIdle();
+        DailySummary stored = dailySummaryRepo.findByShop_IdAndBusinessDate(shopId, businessDate).orElse(null);
+        if (stored != null) {
+            return stored;
+        }
+        DailyCash dailyCash = dailyCashRepo.findByShop_IdAndBusinessDate(shopId, businessDate).orElse(null);
+        if (dailyCash == null || dailyCash.getLocked()) {
+            return null;
+        }
+        return seedLive(dailyCash, generation);
     }
+    /**
+     * Summaries of all shops in a date range, open days included with their live totals
+     */
     public List<DailySummary> getSummaries(LocalDate startDate, LocalDate endDate) {
-        return dailySummaryRepo.findByBusinessDateBetween(startDate, endDate);
+        return reportCache.get("daily-summaries", startDate, endDate, null, () -> {
+            long generation = liveGenerationIfIdle();
+            return withOpenDays(dailySummaryRepo.findByBusinessDateBetween(startDate, endDate),
+                    dailyCashRepo.findUnlockedWithShopByBusinessDateBetween(startDate, endDate), generation);
+        });
     }
+    /**
+     * Summaries of one shop in a date range, open days included with their live totals
+     */
     public List<DailySummary> getSummariesByShop(Long shopId, LocalDate startDate, LocalDate endDate) {
-        return dailySummaryRepo.findByShopIdAndBusinessDateBetween(shopId, startDate, endDate);
+        long generation = liveGenerationIfIdle();
+        return withOpenDays(dailySummaryRepo.findByShopIdAndBusinessDateBetween(shopId, startDate, endDate),
+                dailyCashRepo.findUnlockedWithShopByShopIdAndBusinessDateBetween(shopId, startDate, endDate), generation);
+    }
+    /**
+     * Summary of a day as returned by the API (no entity references)
+     */
+    public static DailySummaryDTO toDTO(DailySummary summary) {
+        return DailySummaryDTO.builder()
+                .shopId(summary.getShop().getId())
+                .shopCode(summary.getShop().getCode())
+                .shopName(summary.getShop().getName())
+                .businessDate(summary.getBusinessDate().toString())
+                .openingCash(summary.getOpeningCash())
+                .closingCash(summary.getClosingCash())
+                .totalRevenue(summary.getTotalRevenue())
+                .totalExpenses(summary.getTotalExpenses())
+                .totalCredits(summary.getTotalCredits())
+                .netSales(summary.getNetSales())
+                .profit(summary.getProfit())
+                .expenseCount(summary.getExpenseCount())
+                .creditCount(summary.getCreditCount())
+                .manualSaleCount(summary.getManualSaleCount())
+                .staffCount(summary.getStaffCount())
+                .totalAttendanceHours(summary.getTotalAttendanceHours())
+                .isClosed(Boolean.TRUE.equals(summary.getIsClosed()))
+                .calculatedAt(summary.getCalculatedAt())
+                .build();
+    }
+    private List<DailySummary> withOpenDays(List<DailySummary> stored, List<DailyCash> openDays, long generation) {
+        if (openDays.isEmpty()) {
+            return stored;
+        }
+        List<DailySummary> result = new ArrayList<>(stored);
+        java.util.Set<String> storedKeys = stored.stream()
+                .map(ds -> key(ds.getShop().getId(), ds.getBusinessDate()))
+                .collect(Collectors.toSet());
+        // Open days not read before are seeded together from grouped totals, not with queries per day
+        List<DailyCash> unseeded = new ArrayList<>();
+        for (DailyCash day : openDays) {
+            String key = key(day.getShop().getId(), day.getBusinessDate());
+            if (!storedKeys.contains(key)) {
+                DailySummary live = liveDays.get(key);
+                if (live != null) {
+                    result.add(live);
+                } else {
+                    unseeded.add(day);
+                }
+            }
+        }
+        for (DailySummary seeded : computeAll(unseeded)) {
+            result.add(keepSeed(seeded, generation));
+        }
+        result.sort((a, b) -> b.getBusinessDate().compareTo(a.getBusinessDate()));
+        return result;
+    }
+    /**
+     * Load an open day's summary from its rows and keep it, unless a live change happened while it was read
+     */
+    private DailySummary seedLive(DailyCash dailyCash, long generation) {
+        return keepSeed(computeFor(dailyCash), generation);
+    }
+    /**
+     * Keep an open day's freshly computed summary as its live summary, unless a live change happened while it was read
+     */
+    private DailySummary keepSeed(DailySummary seeded, long generation) {
+        String key = key(seeded.getShop().getId(), seeded.getBusinessDate());
+        synchronized (liveDays) {
+            if (generation >= 0 && pendingLiveChanges == 0 && liveGeneration == generation) {
+                DailySummary current = liveDays.putIfAbsent(key, seeded);
+                return current != null ? current : seeded;
+            }
+        }
+        return seeded;
+    }
+    /**
+     * @return the current live generation, or -1 while a change is pending (seeds read now are not kept)
+     */
+    private long liveGenerationIfIdle() {
+        synchronized (liveDays) {
+            return pendingLiveChanges == 0 ? liveGeneration : -1;
+        }
+    }
+    /**
+     * Run a change to the live summaries when the surrounding transaction commits (now if there is none)
+     * Seeds that overlap a pending change are discarded, so a seed never counts a write twice
+     */
+    private void changeLive(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (liveDays) {
+                change.run();
+                liveGeneration++;
+            }
+            return;
+        }
+        synchronized (liveDays) {
+            pendingLiveChanges++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (liveDays) {
+                    if (status == STATUS_COMMITTED) {
+                        change.run();
+                    }
+                    pendingLiveChanges--;
+                    liveGeneration++;
+                }
+            }
+        });
+    }
+    private static DailySummary withDelta(DailySummary live, double expenses, int expenseCount, int saleCount,
+                                          double credits, int creditCount) {
+        double totalExpenses = live.getTotalExpenses() + expenses;
+        double totalCredits = live.getTotalCredits() + credits;
+        double totalRevenue = live.getCashDifference() + totalExpenses;
+        return DailySummary.builder()
+                .shop(live.getShop())
+                .businessDate(live.getBusinessDate())
+                .openingCash(live.getOpeningCash())
+                .closingCash(live.getClosingCash())
+                .cashDifference(live.getCashDifference())
+                .totalRevenue(totalRevenue)
+                .totalExpenses(totalExpenses)
+                .totalCredits(totalCredits)
+                .netSales(totalRevenue - totalCredits)
+                .profit(totalRevenue - totalExpenses)
+                .expenseCount(live.getExpenseCount() + expenseCount)
+                .creditCount(live.getCreditCount() + creditCount)
+                .manualSaleCount(live.getManualSaleCount() + saleCount)
+                .staffCount(live.getStaffCount())
+                .totalAttendanceHours(live.getTotalAttendanceHours())
+                .isClosed(false)
+                .calculatedAt(System.currentTimeMillis())
+                .build();
+    }
+    private static String key(Long shopId, LocalDate businessDate) {
+        return shopId + ":" + businessDate;
     }
-}
\ No newline at end of file
+}
@@ -23,17 +23,20 @@ public class DataMigrationService {
     private final CashTransactionRepository cashTransactionRepo;
     private final TransactionRepository oldTransactionRepo;
     private final CreditRepository creditRepo;
+    private final DailyCashService dailyCashService;
     public DataMigrationService(
             ShopRepository shopRepo,
             DailyCashRepository dailyCashRepo,
             CashTransactionRepository cashTransactionRepo,
             TransactionRepository oldTransactionRepo,
-            CreditRepository creditRepo) {
+            CreditRepository creditRepo,
+            DailyCashService dailyCashService) {
         this.shopRepo = shopRepo;
         this.dailyCashRepo = dailyCashRepo;
         this.cashTransactionRepo = cashTransactionRepo;
         this.oldTransactionRepo = oldTransactionRepo;
         this.creditRepo = creditRepo;
+        this.dailyCashService = dailyCashService;
     }
     /**
      * Initialize shops if they don't exist
@@ -54,6 +57,8 @@ public class DataMigrationService {
                     .build();
             shopRepo.save(bookshop);
         }
+        // The shops summary screen keeps its shop list in memory
+        dailyCashService.resetShopsSummary();
     }
     /**
      * Migrate old shop_transactions to new structure
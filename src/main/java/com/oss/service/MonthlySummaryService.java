@@ -0,0 +1,161 @@
+package com.oss.service;
+import com.oss.model.DailySummary;
+import com.oss.model.MonthlySummary;
+import com.oss.repository.DailySummaryRepository;
+import com.oss.repository.MonthlySummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Monthly Summary Service - Maintains the per shop, per month rollup of daily summaries
+ * Each DailySummary write applies only its own delta, so the month is never rescanned
+ */
+@Service
+public class MonthlySummaryService {
+    private static final Logger log = LoggerFactory.getLogger(MonthlySummaryService.class);
+    private final MonthlySummaryRepository monthlySummaryRepo;
+    private final DailySummaryRepository dailySummaryRepo;
+    private final ReportCacheService reportCache;
+    private final TransactionTemplate tx;
+    public MonthlySummaryService(MonthlySummaryRepository monthlySummaryRepo,
+                                 DailySummaryRepository dailySummaryRepo,
+                                 ReportCacheService reportCache,
+                                 PlatformTransactionManager transactionManager) {
+        this.monthlySummaryRepo = monthlySummaryRepo;
+        this.dailySummaryRepo = dailySummaryRepo;
+        this.reportCache = reportCache;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+    /**
+     * Build the rollup the first time the application starts with daily summaries but no monthly rows
+     * Without this, the first delta of each shop-month would create a month holding only that day
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeRollup() {
+        if (monthlySummaryRepo.count() == 0 && dailySummaryRepo.count() > 0) {
+            Integer months = tx.execute(status -> rebuildAll());
+            log.info("Monthly summaries built: {} shop-months", months);
+        }
+    }
+    /**
+     * Apply the change of one daily summary to its month
+     * @param before totals of the day before the write, or null if the day is new
+     * @param after  the daily summary as written
+     */
+    @Transactional
+    public void applyDailyDelta(DailySummary before, DailySummary after) {
+        applyDailyDeltas(Collections.singletonList(before), List.of(after));
+    }
+    /**
+     * Apply the changes of many daily summaries, with one in-place upsert per affected month
+     * The deltas are added by the database, so months are never read and written back
+     * @param before totals of each day before the write, with null entries for new days
+     * @param after  the daily summaries as written, in the same order as before
+     */
+    @Transactional
+    public void applyDailyDeltas(List<DailySummary> before, List<DailySummary> after) {
+        // shopId:year:month -> {revenue, expenses, credits, netSales, profit, expenseCount, creditCount, saleCount, dayCount}
+        Map<String, double[]> deltas = new LinkedHashMap<>();
+        Map<String, DailySummary> firstDay = new HashMap<>();
+        for (int i = 0; i < after.size(); i++) {
+            DailySummary day = after.get(i);
+            LocalDate businessDate = day.getBusinessDate();
+            String key = monthKey(day.getShop().getId(), businessDate.getYear(), businessDate.getMonthValue());
+            firstDay.putIfAbsent(key, day);
+            addDelta(deltas.computeIfAbsent(key, k -> new double[9]), before.get(i), day);
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, double[]> entry : deltas.entrySet()) {
+            DailySummary day = firstDay.get(entry.getKey());
+            double[] d = entry.getValue();
+            monthlySummaryRepo.addDayDelta(day.getShop().getId(), day.getBusinessDate().getYear(),
+                    day.getBusinessDate().getMonthValue(), d[0], d[1], d[2], d[3], d[4],
+                    (int) d[5], (int) d[6], (int) d[7], (int) d[8], now);
+        }
+    }
+    /**
+     * Add the signed changes of one day to its month in place (see DailySummaryService.applyDelta)
+     * Revenue moves with expenses and net sales with expenses minus credits; profit and the day count do not change
+     */
+    @Transactional
+    public void applyTotalsDelta(Long shopId, LocalDate businessDate, double expenses, int expenseCount, int saleCount,
+                                 double credits, int creditCount, long now) {
+        monthlySummaryRepo.addDayDelta(shopId, businessDate.getYear(), businessDate.getMonthValue(),
+                expenses, expenses, credits, expenses - credits, 0.0, expenseCount, creditCount, saleCount, 0, now);
+    }
+    private static String monthKey(Long shopId, int year, int month) {
+        return shopId + ":" + year + ":" + month;
+    }
+    private static void addDelta(double[] delta, DailySummary before, DailySummary after) {
+        delta[0] += value(after.getTotalRevenue()) - (before != null ? value(before.getTotalRevenue()) : 0.0);
+        delta[1] += value(after.getTotalExpenses()) - (before != null ? value(before.getTotalExpenses()) : 0.0);
+        delta[2] += value(after.getTotalCredits()) - (before != null ? value(before.getTotalCredits()) : 0.0);
+        delta[3] += value(after.getNetSales()) - (before != null ? value(before.getNetSales()) : 0.0);
+        delta[4] += value(after.getProfit()) - (before != null ? value(before.getProfit()) : 0.0);
+        delta[5] += count(after.getExpenseCount()) - (before != null ? count(before.getExpenseCount()) : 0);
+        delta[6] += count(after.getCreditCount()) - (before != null ? count(before.getCreditCount()) : 0);
+        delta[7] += count(after.getManualSaleCount()) - (before != null ? count(before.getManualSaleCount()) : 0);
+        if (before == null) {
+            delta[8]++;
+        }
+    }
+    /**
+     * Copy the totals of a daily summary before it is modified in place
+     */
+    public static DailySummary snapshot(DailySummary summary) {
+        return DailySummary.builder()
+                .totalRevenue(summary.getTotalRevenue())
+                .totalExpenses(summary.getTotalExpenses())
+                .totalCredits(summary.getTotalCredits())
+                .netSales(summary.getNetSales())
+                .profit(summary.getProfit())
+                .expenseCount(summary.getExpenseCount())
+                .creditCount(summary.getCreditCount())
+                .manualSaleCount(summary.getManualSaleCount())
+                .build();
+    }
+    /**
+     * Rebuild the whole rollup table from daily_summaries (for data migration or corrections)
+     * Each calendar month is summed per shop in the database with one INSERT ... SELECT ... GROUP BY
+     * @return number of monthly rows written
+     */
+    @Transactional
+    public int rebuildAll() {
+        monthlySummaryRepo.deleteAllInBatch();
+        int written = 0;
+        List<Object[]> range = monthlySummaryRepo.findDailyDateRange();
+        if (!range.isEmpty() && range.get(0)[0] != null) {
+            long now = System.currentTimeMillis();
+            YearMonth last = YearMonth.from((LocalDate) range.get(0)[1]);
+            for (YearMonth month = YearMonth.from((LocalDate) range.get(0)[0]); !month.isAfter(last); month = month.plusMonths(1)) {
+                written += monthlySummaryRepo.insertMonthFromDaily(month, now);
+            }
+        }
+        reportCache.invalidateAll();
+        return written;
+    }
+    public List<MonthlySummary> getMonthlySummaries(int startYear, int endYear) {
+        return monthlySummaryRepo.findByYearBetween(startYear, endYear);
+    }
+    public List<MonthlySummary> getMonthlySummariesByShop(Long shopId, int startYear, int endYear) {
+        return monthlySummaryRepo.findByShopIdAndYearBetween(shopId, startYear, endYear);
+    }
+    private static double value(Double d) {
+        return d != null ? d : 0.0;
+    }
+    private static int count(Integer i) {
+        return i != null ? i : 0;
+    }
+}
@@ -0,0 +1,296 @@
+package com.oss.service;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oss.config.WorkTimeConfig;
+import com.oss.dto.OSS_DailySalaryDto;
+import com.oss.dto.PayrollEntryDTO;
+import com.oss.dto.PayrollRunDTO;
+import com.oss.model.Attendance;
+import com.oss.model.PayrollPeriod;
+import com.oss.model.PayrollSnapshot;
+import com.oss.model.User;
+import com.oss.repository.AttendanceRepository;
+import com.oss.repository.CreditMonthlyBalanceRepository;
+import com.oss.repository.PayrollPeriodRepository;
+import com.oss.repository.PayrollSnapshotRepository;
+import com.oss.repository.UserRepository;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+/**
+ * Payroll Service - Computes the salaries of all staff for a month in one pass
+ * The month's attendance (with users) and credit totals are read in two queries,
+ * then every staff member is paid by SalaryRule, the same rule the per-user salary pages use.
+ * Once a month is closed its salaries are stored as snapshots and served from them unchanged.
+ * The closed months are loaded once and kept in memory, so an open month costs no extra lookup.
+ */
+@Service
+@Transactional(readOnly = true)
+public class PayrollService {
+    private static final TypeReference<List<List<Object>>> BREAKDOWN_TYPE = new TypeReference<>() {};
+
+    private final AttendanceRepository attendanceRepository;
+    private final CreditMonthlyBalanceRepository creditMonthlyBalanceRepository;
+    private final PayrollPeriodRepository payrollPeriodRepository;
+    private final PayrollSnapshotRepository payrollSnapshotRepository;
+    private final UserRepository userRepository;
+    private final AuditLogService auditLogService;
+    private final ObjectMapper objectMapper;
+    // Closed months as year * 100 + month, loaded with one query on first use and added to as months close
+    private final Set<Integer> closedMonths = ConcurrentHashMap.newKeySet();
+    private volatile boolean closedMonthsLoaded = false;
+
+    public PayrollService(AttendanceRepository attendanceRepository,
+                          CreditMonthlyBalanceRepository creditMonthlyBalanceRepository,
+                          PayrollPeriodRepository payrollPeriodRepository,
+                          PayrollSnapshotRepository payrollSnapshotRepository,
+                          UserRepository userRepository,
+                          AuditLogService auditLogService,
+                          ObjectMapper objectMapper) {
+        this.attendanceRepository = attendanceRepository;
+        this.creditMonthlyBalanceRepository = creditMonthlyBalanceRepository;
+        this.payrollPeriodRepository = payrollPeriodRepository;
+        this.payrollSnapshotRepository = payrollSnapshotRepository;
+        this.userRepository = userRepository;
+        this.auditLogService = auditLogService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Salaries of everyone with attendance or credits in the month, ordered by name
+     * A closed month is read from its snapshots instead of being recomputed
+     */
+    public PayrollRunDTO runPayroll(int year, int month) {
+        if (isClosed(year, month)) {
+            List<PayrollEntryDTO> staff = payrollSnapshotRepository.findByYearAndMonth(year, month).stream()
+                    .map(this::toEntry)
+                    .collect(Collectors.toList());
+            return toRun(year, month, staff);
+        }
+        return computePayroll(year, month);
+    }
+
+    /**
+     * Close a finished month: store every staff member's salary as computed now
+     * A closed month cannot be closed again; its snapshots are what was paid.
+     * When two requests close the same month at once, the second one gets 409: from the unique indexes, or,
+     * on SQLite, from the write lock refused to a transaction whose reads predate the first one's commit.
+     */
+    @Transactional
+    public PayrollPeriod closePeriod(int year, int month, User closedBy) {
+        LocalDate lastDay = LocalDate.of(year, month, 1).withDayOfMonth(LocalDate.of(year, month, 1).lengthOfMonth());
+        if (!lastDay.isBefore(LocalDate.now(WorkTimeConfig.DEFAULT_ZONE))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only a month that has ended can be closed");
+        }
+        if (payrollPeriodRepository.existsByYearAndMonth(year, month)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Payroll for " + year + "-" + month + " is already closed");
+        }
+        PayrollRunDTO run = computePayroll(year, month);
+        List<PayrollSnapshot> snapshots = new ArrayList<>(run.getStaff().size());
+        for (PayrollEntryDTO entry : run.getStaff()) {
+            snapshots.add(toSnapshot(year, month, entry));
+        }
+        PayrollPeriod period;
+        try {
+            period = payrollPeriodRepository.save(PayrollPeriod.builder()
+                    .year(year)
+                    .month(month)
+                    .staffCount(run.getStaffCount())
+                    .totalBaseSalary(run.getTotalBaseSalary())
+                    .totalCredits(run.getTotalCredits())
+                    .totalSalary(run.getTotalSalary())
+                    .closedByUserId(closedBy.getId())
+                    .closedAt(System.currentTimeMillis())
+                    .build());
+            payrollSnapshotRepository.saveAll(snapshots);
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Payroll for " + year + "-" + month + " is already closed");
+        } catch (ConcurrencyFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Payroll for " + year + "-" + month + " changed while closing, please retry");
+        }
+        afterCommit(() -> closedMonths.add(monthKey(year, month)));
+        Map<String, Object> newValues = new LinkedHashMap<>();
+        newValues.put("year", year);
+        newValues.put("month", month);
+        newValues.put("staffCount", run.getStaffCount());
+        newValues.put("totalSalary", run.getTotalSalary());
+        auditLogService.createAuditLog(closedBy, "CLOSE", "PAYROLL_PERIOD", period.getId(), null, newValues);
+        return period;
+    }
+
+    public List<PayrollPeriod> getClosedPeriods() {
+        return payrollPeriodRepository.findAllByOrderByYearDescMonthDesc();
+    }
+
+    /**
+     * Salary of one user for a closed month, or empty when the month is still open
+     * Users without a snapshot had nothing to pay in that month and get a zero entry
+     */
+    public Optional<PayrollEntryDTO> findClosedEntry(Long userId, int year, int month) {
+        if (!isClosed(year, month)) {
+            return Optional.empty();
+        }
+        Optional<PayrollSnapshot> snapshot = payrollSnapshotRepository.findByYearAndMonthAndUserId(year, month, userId);
+        if (snapshot.isPresent()) {
+            return snapshot.map(this::toEntry);
+        }
+        return userRepository.findById(userId).map(user -> SalaryRule.compute(user, List.of(), 0.0));
+    }
+
+    private boolean isClosed(int year, int month) {
+        if (!closedMonthsLoaded) {
+            loadClosedMonths();
+        }
+        return closedMonths.contains(monthKey(year, month));
+    }
+
+    private synchronized void loadClosedMonths() {
+        if (closedMonthsLoaded) {
+            return;
+        }
+        for (PayrollPeriod period : payrollPeriodRepository.findAll()) {
+            closedMonths.add(monthKey(period.getYear(), period.getMonth()));
+        }
+        closedMonthsLoaded = true;
+    }
+
+    private static int monthKey(int year, int month) {
+        return year * 100 + month;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private PayrollRunDTO computePayroll(int year, int month) {
+        LocalDate from = LocalDate.of(year, month, 1);
+        LocalDate to = from.withDayOfMonth(from.lengthOfMonth());
+        Map<Long, User> users = new HashMap<>();
+        Map<Long, List<Attendance>> attendanceByUser = new HashMap<>();
+        for (Attendance attendance : attendanceRepository.findWithUserByWorkDateBetween(from, to)) {
+            User user = attendance.getUser();
+            users.putIfAbsent(user.getId(), user);
+            attendanceByUser.computeIfAbsent(user.getId(), id -> new ArrayList<>()).add(attendance);
+        }
+        Map<Long, Double> creditsByUser = new HashMap<>();
+        for (Object[] row : creditMonthlyBalanceRepository.findUsersWithTotalByYearAndMonth(year, month)) {
+            User user = (User) row[0];
+            users.putIfAbsent(user.getId(), user);
+            creditsByUser.put(user.getId(), (Double) row[1]);
+        }
+        List<PayrollEntryDTO> staff = new ArrayList<>(users.size());
+        for (User user : users.values()) {
+            staff.add(SalaryRule.compute(user,
+                    attendanceByUser.getOrDefault(user.getId(), List.of()),
+                    creditsByUser.getOrDefault(user.getId(), 0.0)));
+        }
+        return toRun(year, month, staff);
+    }
+
+    private static PayrollRunDTO toRun(int year, int month, List<PayrollEntryDTO> staff) {
+        staff.sort(Comparator.comparing(PayrollEntryDTO::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                .thenComparing(PayrollEntryDTO::getUserId));
+        double totalBase = staff.stream().mapToDouble(PayrollEntryDTO::getBaseSalary).sum();
+        double totalCredits = staff.stream().mapToDouble(PayrollEntryDTO::getTotalCredits).sum();
+        return PayrollRunDTO.builder()
+                .year(year)
+                .month(month)
+                .staffCount(staff.size())
+                .totalBaseSalary(totalBase)
+                .totalCredits(totalCredits)
+                .totalSalary(totalBase - totalCredits)
+                .staff(staff)
+                .build();
+    }
+
+    private PayrollSnapshot toSnapshot(int year, int month, PayrollEntryDTO entry) {
+        List<Object[]> days = new ArrayList<>(entry.getDailyBreakdown().size());
+        for (OSS_DailySalaryDto d : entry.getDailyBreakdown()) {
+            days.add(new Object[]{d.getDate().toString(), d.getStatus(), d.getQualified(), d.getHours(), d.getSalary(),
+                    d.getOvertimeHours(), d.getDeductionHours(), d.getOvertimeReason(), d.getDeductionReason()});
+        }
+        String breakdown;
+        try {
+            breakdown = objectMapper.writeValueAsString(days);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not store payroll breakdown for user " + entry.getUserId(), e);
+        }
+        return PayrollSnapshot.builder()
+                .year(year)
+                .month(month)
+                .userId(entry.getUserId())
+                .name(entry.getName())
+                .email(entry.getEmail())
+                .dailySalary(entry.getDailySalary())
+                .hourlyRate(entry.getHourlyRate())
+                .deductionRatePerHour(entry.getDeductionRatePerHour())
+                .totalDaysWorked(entry.getTotalDaysWorked())
+                .totalHours(entry.getTotalHours())
+                .totalOvertimeHours(entry.getTotalOvertimeHours())
+                .totalDeductionHours(entry.getTotalDeductionHours())
+                .baseSalary(entry.getBaseSalary())
+                .totalCredits(entry.getTotalCredits())
+                .totalSalary(entry.getTotalSalary())
+                .dailyBreakdown(breakdown)
+                .build();
+    }
+
+    private PayrollEntryDTO toEntry(PayrollSnapshot snapshot) {
+        List<List<Object>> days;
+        try {
+            days = snapshot.getDailyBreakdown() != null
+                    ? objectMapper.readValue(snapshot.getDailyBreakdown(), BREAKDOWN_TYPE) : List.of();
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not read payroll breakdown of snapshot " + snapshot.getId(), e);
+        }
+        List<OSS_DailySalaryDto> breakdown = new ArrayList<>(days.size());
+        for (List<Object> day : days) {
+            OSS_DailySalaryDto d = new OSS_DailySalaryDto();
+            d.setDate(LocalDate.parse((String) day.get(0)));
+            d.setStatus((String) day.get(1));
+            d.setQualified((Boolean) day.get(2));
+            d.setHours(((Number) day.get(3)).doubleValue());
+            d.setSalary(((Number) day.get(4)).doubleValue());
+            d.setOvertimeHours(((Number) day.get(5)).doubleValue());
+            d.setDeductionHours(((Number) day.get(6)).doubleValue());
+            d.setOvertimeReason((String) day.get(7));
+            d.setDeductionReason((String) day.get(8));
+            breakdown.add(d);
+        }
+        return PayrollEntryDTO.builder()
+                .userId(snapshot.getUserId())
+                .name(snapshot.getName())
+                .email(snapshot.getEmail())
+                .dailySalary(snapshot.getDailySalary())
+                .hourlyRate(snapshot.getHourlyRate())
+                .deductionRatePerHour(snapshot.getDeductionRatePerHour())
+                .totalDaysWorked(snapshot.getTotalDaysWorked())
+                .totalHours(snapshot.getTotalHours())
+                .totalOvertimeHours(snapshot.getTotalOvertimeHours())
+                .totalDeductionHours(snapshot.getTotalDeductionHours())
+                .baseSalary(snapshot.getBaseSalary())
+                .totalCredits(snapshot.getTotalCredits())
+                .totalSalary(snapshot.getTotalSalary())
+                .dailyBreakdown(breakdown)
+                .build();
+    }
+}
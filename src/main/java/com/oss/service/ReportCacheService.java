@@ -0,0 +1,123 @@
+package com.oss.service;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+/**
+ * In-memory cache of report results keyed by report type and date range
+ * Writes evict only the entries whose date range covers the affected business date
+ */
+@Service
+public class ReportCacheService {
+    private static final int MAX_ENTRIES = 500;
+
+    private static class Entry {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final Object value;
+        Entry(LocalDate startDate, LocalDate endDate, Object value) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.value = value;
+        }
+        boolean covers(LocalDate date) {
+            return !date.isBefore(startDate) && !date.isAfter(endDate);
+        }
+    }
+
+    // Access-ordered so the least recently used entry is dropped first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // Bumped on every invalidation; a result loaded across an invalidation is not cached
+    private long generation = 0;
+
+    /**
+     * Return the cached result for this report and range, computing and caching it on a miss
+     * @param params extra parameters that distinguish results for the same range (e.g. shopId), may be null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String reportType, LocalDate startDate, LocalDate endDate, Object params, Supplier<T> loader) {
+        String key = reportType + "|" + startDate + "|" + endDate + "|" + params;
+        long loadGeneration;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return (T) entry.value;
+            }
+            loadGeneration = generation;
+        }
+        misses.incrementAndGet();
+        T value = loader.get();
+        synchronized (entries) {
+            if (generation == loadGeneration) {
+                entries.put(key, new Entry(startDate, endDate, value));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Evict every entry whose range covers the business date
+     * Runs now and again after the surrounding transaction commits, so a report
+     * computed from not-yet-committed data is not left behind in the cache
+     */
+    public void invalidate(LocalDate businessDate) {
+        if (businessDate == null) {
+            return;
+        }
+        evictCovering(businessDate);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictCovering(businessDate);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            evictions.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", MAX_ENTRIES);
+        return stats;
+    }
+
+    private void evictCovering(LocalDate businessDate) {
+        synchronized (entries) {
+            generation++;
+            int before = entries.size();
+            entries.values().removeIf(entry -> entry.covers(businessDate));
+            evictions.addAndGet(before - entries.size());
+        }
+    }
+}
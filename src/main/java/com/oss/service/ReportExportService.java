@@ -0,0 +1,226 @@
+package com.oss.service;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oss.dto.PayrollRunDTO;
+import com.oss.repository.CashTransactionRepository;
+import com.oss.repository.DailyCashRepository;
+import com.oss.repository.DailySummaryRepository;
+import com.oss.repository.MonthlySummaryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+/**
+ * Streams report rows straight from a database cursor to the response as CSV or NDJSON
+ * Each export is returned as a StreamingResponseBody for the controller to put in its response;
+ * rows are written as they are read, so memory use does not grow with the date range
+ * A streaming export holds a pooled connection for as long as the client takes to download it, so only
+ * report-export.max-concurrent (default 1) run at a time; further exports are refused with 429 instead of
+ * leaving the rest of the application waiting for a connection
+ */
+@Service
+public class ReportExportService {
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+        private final String contentType;
+        private final String extension;
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+        public String getContentType() {
+            return contentType;
+        }
+        public String getExtension() {
+            return extension;
+        }
+        /**
+         * Parse the ?format= request parameter
+         * @return null for a regular JSON response (no parameter or "json")
+         */
+        public static Format parse(String value) {
+            if (value == null || value.isBlank() || "json".equalsIgnoreCase(value)) {
+                return null;
+            }
+            try {
+                return Format.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid format. Must be: json, csv or ndjson");
+            }
+        }
+    }
+
+    private static final String[] EXPENSE_COLUMNS = {
+            "businessDate", "shopName", "expenseTypeName", "amount", "description", "recordedBy", "createdAt"};
+    private static final String[] BANK_DEPOSIT_COLUMNS = {"businessDate", "shopName", "amount"};
+    private static final String[] DAILY_SUMMARY_COLUMNS = {
+            "businessDate", "shopName", "openingCash", "closingCash", "totalRevenue", "totalExpenses", "totalCredits",
+            "netSales", "profit", "expenseCount", "creditCount", "manualSaleCount", "staffCount",
+            "totalAttendanceHours", "isClosed"};
+    private static final String[] MONTHLY_SUMMARY_COLUMNS = {
+            "year", "month", "shopName", "totalRevenue", "totalExpenses", "totalCredits", "netSales", "profit",
+            "expenseCount", "creditCount", "manualSaleCount", "dayCount"};
+
+    private static final String[] PAYROLL_COLUMNS = {
+            "userId", "name", "email", "totalDaysWorked", "totalHours", "totalOvertimeHours", "totalDeductionHours",
+            "dailySalary", "hourlyRate", "deductionRatePerHour", "baseSalary", "totalCredits", "totalSalary"};
+    private static final String[] PAYROLL_DAY_COLUMNS = {
+            "userId", "name", "date", "status", "qualified", "hours", "overtimeHours", "deductionHours", "salary",
+            "overtimeReason", "deductionReason"};
+
+    private final CashTransactionRepository cashTransactionRepository;
+    private final DailyCashRepository dailyCashRepository;
+    private final DailySummaryRepository dailySummaryRepository;
+    private final MonthlySummaryRepository monthlySummaryRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readTx;
+    private final Semaphore exportPermits;
+
+    public ReportExportService(
+            CashTransactionRepository cashTransactionRepository,
+            DailyCashRepository dailyCashRepository,
+            DailySummaryRepository dailySummaryRepository,
+            MonthlySummaryRepository monthlySummaryRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${report-export.max-concurrent:1}") int maxConcurrentExports) {
+        this.cashTransactionRepository = cashTransactionRepository;
+        this.dailyCashRepository = dailyCashRepository;
+        this.dailySummaryRepository = dailySummaryRepository;
+        this.monthlySummaryRepository = monthlySummaryRepository;
+        this.objectMapper = objectMapper;
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+        this.exportPermits = new Semaphore(maxConcurrentExports);
+    }
+
+    /**
+     * Expense line items behind the expense reports
+     */
+    public StreamingResponseBody exportExpenses(LocalDate startDate, LocalDate endDate, Format format) {
+        return stream(format, EXPENSE_COLUMNS, () -> cashTransactionRepository.streamExpenseRowsByBusinessDateRange(startDate, endDate));
+    }
+
+    public StreamingResponseBody exportBankDeposits(LocalDate startDate, LocalDate endDate, Format format) {
+        return stream(format, BANK_DEPOSIT_COLUMNS, () -> dailyCashRepository.streamBankDepositRows(startDate, endDate));
+    }
+
+    /**
+     * Daily summary rows for one shop, or all shops when shopId is null
+     */
+    public StreamingResponseBody exportDailySummaries(Long shopId, LocalDate startDate, LocalDate endDate, Format format) {
+        return stream(format, DAILY_SUMMARY_COLUMNS, () -> dailySummaryRepository.streamRowsByShopAndDateRange(shopId, startDate, endDate));
+    }
+
+    /**
+     * Monthly rollup rows for one shop, or all shops when shopId is null
+     */
+    public StreamingResponseBody exportMonthlySummaries(Long shopId, int startYear, int endYear, Format format) {
+        return stream(format, MONTHLY_SUMMARY_COLUMNS, () -> monthlySummaryRepository.streamRowsByShopAndYearRange(shopId, startYear, endYear));
+    }
+
+    /**
+     * A payroll run, one row per staff member, or one row per staff member and day when detail is set
+     * Written from the run already in memory, so it needs no connection and is not counted against the export limit
+     */
+    public StreamingResponseBody exportPayroll(PayrollRunDTO run, boolean detail, Format format) {
+        Stream<Object[]> rows;
+        if (detail) {
+            rows = run.getStaff().stream().flatMap(e -> e.getDailyBreakdown().stream().map(d -> new Object[]{
+                    e.getUserId(), e.getName(), d.getDate(), d.getStatus(), d.getQualified(), d.getHours(),
+                    d.getOvertimeHours(), d.getDeductionHours(), d.getSalary(), d.getOvertimeReason(), d.getDeductionReason()}));
+        } else {
+            rows = run.getStaff().stream().map(e -> new Object[]{
+                    e.getUserId(), e.getName(), e.getEmail(), e.getTotalDaysWorked(), e.getTotalHours(),
+                    e.getTotalOvertimeHours(), e.getTotalDeductionHours(), e.getDailySalary(), e.getHourlyRate(),
+                    e.getDeductionRatePerHour(), e.getBaseSalary(), e.getTotalCredits(), e.getTotalSalary()});
+        }
+        String[] columns = detail ? PAYROLL_DAY_COLUMNS : PAYROLL_COLUMNS;
+        return out -> write(format, out, columns, rows);
+    }
+
+    /**
+     * Body that runs a streaming query in a read-only transaction, within the limit of concurrent exports
+     * The permit is taken now, so a refused export gets its status before any header is sent,
+     * and released once the body has been written
+     * @throws ResponseStatusException 429 when the limit is reached
+     */
+    private StreamingResponseBody stream(Format format, String[] columns, Supplier<Stream<Object[]>> query) {
+        if (!exportPermits.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Another export is running, try again shortly");
+        }
+        return out -> {
+            try {
+                readTx.executeWithoutResult(status -> {
+                    try (Stream<Object[]> rows = query.get()) {
+                        write(format, out, columns, rows);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                exportPermits.release();
+            }
+        };
+    }
+
+    private void write(Format format, OutputStream out, String[] columns, Stream<Object[]> rows) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(String.join(",", columns));
+            writer.write("\n");
+        }
+        // Send the first bytes before the cursor is drained
+        writer.flush();
+        Iterator<Object[]> it = rows.iterator();
+        while (it.hasNext()) {
+            Object[] row = it.next();
+            if (format == Format.CSV) {
+                for (int i = 0; i < columns.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(csvValue(row[i]));
+                }
+            } else {
+                Map<String, Object> json = new LinkedHashMap<>();
+                for (int i = 0; i < columns.length; i++) {
+                    json.put(columns[i], row[i]);
+                }
+                writer.write(objectMapper.writeValueAsString(json));
+            }
+            writer.write("\n");
+        }
+        writer.flush();
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
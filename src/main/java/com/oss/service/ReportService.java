@@ -6,7 +6,9 @@ import com.oss.repository.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -18,16 +20,22 @@ public class ReportService {
     private final DailyCashRepository dailyCashRepository;
     private final ShopRepository shopRepository;
     private final DailySummaryRepository dailySummaryRepository;
+    private final MonthlySummaryRepository monthlySummaryRepository;
+    private final DailySummaryService dailySummaryService;
 
     public ReportService(
             CashTransactionRepository cashTransactionRepository,
             DailyCashRepository dailyCashRepository,
             ShopRepository shopRepository,
-            DailySummaryRepository dailySummaryRepository) {
+            DailySummaryRepository dailySummaryRepository,
+            MonthlySummaryRepository monthlySummaryRepository,
+            DailySummaryService dailySummaryService) {
         this.cashTransactionRepository = cashTransactionRepository;
         this.dailyCashRepository = dailyCashRepository;
         this.shopRepository = shopRepository;
         this.dailySummaryRepository = dailySummaryRepository;
+        this.monthlySummaryRepository = monthlySummaryRepository;
+        this.dailySummaryService = dailySummaryService;
     }
 
     public List<BankDepositDTO> getBankDeposits(LocalDate startDate, LocalDate endDate) {
@@ -43,27 +51,40 @@ public class ReportService {
     }
 
     public DailyExpenseReportDTO getDailyExpenseReport(LocalDate date) {
-        // Use findByBusinessDateBetween with same date for both params
+        // Shops open that day are listed even when they have no expenses
         List<DailyCash> dailyCashList = dailyCashRepository.findByBusinessDateBetween(date, date);
+        List<ExpenseAggregate> aggregates = cashTransactionRepository.aggregateExpensesByBusinessDateRange(date, date);
 
-        List<ShopExpenseDTO> shopExpenses = new ArrayList<>();
-        double totalExpenses = 0.0;
-
+        Map<Long, ShopExpenseDTO> shopExpenses = new LinkedHashMap<>();
         for (DailyCash dc : dailyCashList) {
-            List<CashTransaction> expenses = cashTransactionRepository.findByDailyCashIdAndType(dc.getId(), "EXPENSE");
-            double shopExpenseTotal = expenses.stream().mapToDouble(CashTransaction::getAmount).sum();
-            totalExpenses += shopExpenseTotal;
-
-            shopExpenses.add(ShopExpenseDTO.builder()
-                    .shopName(dc.getShop().getName())
-                    .totalExpenses(shopExpenseTotal)
+            Shop shop = dc.getShop();
+            shopExpenses.put(shop.getId(), ShopExpenseDTO.builder()
+                    .shopId(shop.getId())
+                    .shopCode(shop.getCode())
+                    .shopName(shop.getName())
+                    .totalExpenses(0.0)
+                    .expenseCount(0L)
+                    .build());
+        }
+        double totalExpenses = 0.0;
+        for (ExpenseAggregate agg : aggregates) {
+            totalExpenses += agg.getTotalAmount();
+            ShopExpenseDTO shopExpense = shopExpenses.computeIfAbsent(agg.getShopId(), id -> ShopExpenseDTO.builder()
+                    .shopId(agg.getShopId())
+                    .shopCode(agg.getShopCode())
+                    .shopName(agg.getShopName())
+                    .totalExpenses(0.0)
+                    .expenseCount(0L)
                     .build());
+            shopExpense.setTotalExpenses(shopExpense.getTotalExpenses() + agg.getTotalAmount());
+            shopExpense.setExpenseCount(shopExpense.getExpenseCount() + agg.getTransactionCount());
         }
 
         return DailyExpenseReportDTO.builder()
                 .date(date.toString())
                 .totalExpenses(totalExpenses)
-                .shopExpenses(shopExpenses)
+                .shopExpenses(new ArrayList<>(shopExpenses.values()))
+                .categoryExpenses(groupByCategory(aggregates, totalExpenses))
                 .build();
     }
 
@@ -71,87 +92,49 @@ public class ReportService {
         LocalDate startDate = LocalDate.of(year, month, 1);
         LocalDate endDate = startDate.plusMonths(1).minusDays(1);
 
-        List<DailyCash> dailyCashList = dailyCashRepository.findByBusinessDateBetween(startDate, endDate);
-
-        Map<String, Double> categoryTotals = new HashMap<>();
-        double totalExpenses = 0.0;
-
-        for (DailyCash dc : dailyCashList) {
-            List<CashTransaction> expenses = cashTransactionRepository.findByDailyCashIdAndType(dc.getId(), "EXPENSE");
-
-            for (CashTransaction exp : expenses) {
-                totalExpenses += exp.getAmount();
-                String category = exp.getExpenseType() != null ? exp.getExpenseType().getName() : "Other";
-                categoryTotals.merge(category, exp.getAmount(), Double::sum);
-            }
-        }
-
-        List<CategoryExpenseDTO> categories = categoryTotals.entrySet().stream()
-                .map(e -> CategoryExpenseDTO.builder()
-                        .expenseTypeName(e.getKey())
-                        .totalAmount(e.getValue())
-                        .build())
-                .sorted((a, b) -> Double.compare(b.getTotalAmount(), a.getTotalAmount()))
-                .collect(Collectors.toList());
+        List<ExpenseAggregate> aggregates = cashTransactionRepository.aggregateExpensesByBusinessDateRange(startDate, endDate);
+        double totalExpenses = sumTotals(aggregates);
 
         return MonthlyExpenseReportDTO.builder()
                 .year(year)
                 .month(month)
                 .totalExpenses(totalExpenses)
-                .categoryExpenses(categories)
+                .categoryExpenses(groupByCategory(aggregates, totalExpenses))
                 .build();
     }
 
     public ExpenseByCategoryReportDTO getExpensesByCategory(LocalDate startDate, LocalDate endDate) {
-        List<DailyCash> dailyCashList = dailyCashRepository.findByBusinessDateBetween(startDate, endDate);
-
-        Map<String, Double> categoryTotals = new HashMap<>();
-
-        for (DailyCash dc : dailyCashList) {
-            List<CashTransaction> expenses = cashTransactionRepository.findByDailyCashIdAndType(dc.getId(), "EXPENSE");
-
-            for (CashTransaction exp : expenses) {
-                String category = exp.getExpenseType() != null ? exp.getExpenseType().getName() : "Other";
-                categoryTotals.merge(category, exp.getAmount(), Double::sum);
-            }
-        }
-
-        double total = categoryTotals.values().stream().mapToDouble(Double::doubleValue).sum();
-
-        List<CategoryExpenseDTO> categories = categoryTotals.entrySet().stream()
-                .map(e -> CategoryExpenseDTO.builder()
-                        .expenseTypeName(e.getKey())
-                        .totalAmount(e.getValue())
-                        .build())
-                .sorted((a, b) -> Double.compare(b.getTotalAmount(), a.getTotalAmount()))
-                .collect(Collectors.toList());
+        List<ExpenseAggregate> aggregates = cashTransactionRepository.aggregateExpensesByBusinessDateRange(startDate, endDate);
+        double total = sumTotals(aggregates);
 
         return ExpenseByCategoryReportDTO.builder()
                 .startDate(startDate.toString())
                 .endDate(endDate.toString())
                 .totalExpenses(total)
-                .categories(categories)
+                .categories(groupByCategory(aggregates, total))
                 .build();
     }
 
     public ExpenseByShopReportDTO getExpensesByShop(LocalDate startDate, LocalDate endDate) {
-        List<DailyCash> dailyCashList = dailyCashRepository.findByBusinessDateBetween(startDate, endDate);
-
-        Map<String, ShopExpenseDetailDTO> shopExpenses = new HashMap<>();
-
-        for (DailyCash dc : dailyCashList) {
-            List<CashTransaction> expenses = cashTransactionRepository.findByDailyCashIdAndType(dc.getId(), "EXPENSE");
-            double totalExpense = expenses.stream().mapToDouble(CashTransaction::getAmount).sum();
-
-            shopExpenses.merge(dc.getShop().getName(),
-                ShopExpenseDetailDTO.builder()
-                    .shopName(dc.getShop().getName())
-                    .totalExpenses(totalExpense)
-                    .build(),
-                (existing, newVal) -> ShopExpenseDetailDTO.builder()
-                    .shopName(existing.getShopName())
-                    .totalExpenses(existing.getTotalExpenses() + newVal.getTotalExpenses())
+        List<ExpenseAggregate> aggregates = cashTransactionRepository.aggregateExpensesByBusinessDateRange(startDate, endDate);
+        double total = sumTotals(aggregates);
+
+        Map<Long, ShopExpenseDetailDTO> shopExpenses = new HashMap<>();
+        for (ExpenseAggregate agg : aggregates) {
+            ShopExpenseDetailDTO shopExpense = shopExpenses.computeIfAbsent(agg.getShopId(), id -> ShopExpenseDetailDTO.builder()
+                    .shopId(agg.getShopId())
+                    .shopCode(agg.getShopCode())
+                    .shopName(agg.getShopName())
+                    .totalExpenses(0.0)
+                    .expenseCount(0L)
                     .build());
+            shopExpense.setTotalExpenses(shopExpense.getTotalExpenses() + agg.getTotalAmount());
+            shopExpense.setExpenseCount(shopExpense.getExpenseCount() + agg.getTransactionCount());
+        }
+        for (ShopExpenseDetailDTO shopExpense : shopExpenses.values()) {
+            shopExpense.setAverageExpense(shopExpense.getExpenseCount() > 0
+                    ? shopExpense.getTotalExpenses() / shopExpense.getExpenseCount() : 0.0);
+            shopExpense.setPercentage(total > 0 ? shopExpense.getTotalExpenses() * 100.0 / total : 0.0);
         }
 
         List<ShopExpenseDetailDTO> shops = new ArrayList<>(shopExpenses.values());
@@ -160,16 +143,181 @@ public class ReportService {
         return ExpenseByShopReportDTO.builder()
                 .startDate(startDate.toString())
                 .endDate(endDate.toString())
+                .totalExpenses(total)
                 .shops(shops)
                 .build();
     }
 
+    private double sumTotals(List<ExpenseAggregate> aggregates) {
+        return aggregates.stream().mapToDouble(ExpenseAggregate::getTotalAmount).sum();
+    }
+
+    /**
+     * Roll grouped rows up to one entry per expense type name (untyped expenses go to "Other"),
+     * largest first
+     */
+    private List<CategoryExpenseDTO> groupByCategory(List<ExpenseAggregate> aggregates, double total) {
+        Map<String, CategoryExpenseDTO> categories = new HashMap<>();
+        for (ExpenseAggregate agg : aggregates) {
+            String category = agg.getExpenseTypeName() != null ? agg.getExpenseTypeName() : "Other";
+            CategoryExpenseDTO dto = categories.computeIfAbsent(category, name -> CategoryExpenseDTO.builder()
+                    .expenseTypeId(agg.getExpenseTypeId())
+                    .expenseTypeName(name)
+                    .totalAmount(0.0)
+                    .transactionCount(0L)
+                    .build());
+            dto.setTotalAmount(dto.getTotalAmount() + agg.getTotalAmount());
+            dto.setTransactionCount(dto.getTransactionCount() + agg.getTransactionCount());
+        }
+        for (CategoryExpenseDTO dto : categories.values()) {
+            dto.setAverageAmount(dto.getTransactionCount() > 0 ? dto.getTotalAmount() / dto.getTransactionCount() : 0.0);
+            dto.setPercentage(total > 0 ? dto.getTotalAmount() * 100.0 / total : 0.0);
+        }
+        return categories.values().stream()
+                .sorted((a, b) -> Double.compare(b.getTotalAmount(), a.getTotalAmount()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Owner dashboard built from daily summaries and the monthly rollup
+     * Reads the week and month so far (open days with their live totals, cached), two years of monthly rows
+     * and one month of grouped expenses. The rollup only holds closed days, so this month's open days are
+     * added to the month, year and all-time figures.
+     */
     public BusinessSummaryDTO getBusinessSummary() {
-        // Return a simple placeholder - the actual DTO expects complex nested objects
+        LocalDate today = LocalDate.now();
+        LocalDate weekStart = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate monthStart = today.withDayOfMonth(1);
+        LocalDate previousMonthStart = monthStart.minusMonths(1);
+
+        // Today and this week from the daily summaries, open days included; this month's open days,
+        // which have no stored summary yet, are kept per shop to add to the rollup
+        double[] todayTotals = new double[3];
+        double[] weekTotals = new double[3];
+        double[] openMonthTotals = new double[3];
+        Map<Long, Shop> shops = new HashMap<>();
+        Map<Long, double[]> shopMonthTotals = new HashMap<>();
+        LocalDate rangeStart = weekStart.isBefore(monthStart) ? weekStart : monthStart;
+        for (DailySummary ds : dailySummaryService.getSummaries(rangeStart, today)) {
+            LocalDate date = ds.getBusinessDate();
+            if (!date.isBefore(weekStart)) {
+                addTotals(weekTotals, ds.getTotalRevenue(), ds.getTotalExpenses(), ds.getProfit());
+            }
+            if (date.equals(today)) {
+                addTotals(todayTotals, ds.getTotalRevenue(), ds.getTotalExpenses(), ds.getProfit());
+            }
+            if (ds.getId() == null && !date.isBefore(monthStart)) {
+                addTotals(openMonthTotals, ds.getTotalRevenue(), ds.getTotalExpenses(), ds.getProfit());
+                shops.put(ds.getShop().getId(), ds.getShop());
+                addTotals(shopMonthTotals.computeIfAbsent(ds.getShop().getId(), id -> new double[3]),
+                        ds.getTotalRevenue(), ds.getTotalExpenses(), ds.getProfit());
+            }
+        }
+
+        // Months and year from the rollup
+        double[] monthTotals = openMonthTotals.clone();
+        double[] previousMonthTotals = new double[3];
+        double[] yearTotals = openMonthTotals.clone();
+        for (MonthlySummary ms : monthlySummaryRepository.findByYearBetween(previousMonthStart.getYear(), today.getYear())) {
+            if (ms.getYear() == today.getYear()) {
+                addTotals(yearTotals, ms.getTotalRevenue(), ms.getTotalExpenses(), ms.getProfit());
+            }
+            if (ms.getYear() == today.getYear() && ms.getMonth() == today.getMonthValue()) {
+                addTotals(monthTotals, ms.getTotalRevenue(), ms.getTotalExpenses(), ms.getProfit());
+                shops.put(ms.getShop().getId(), ms.getShop());
+                addTotals(shopMonthTotals.computeIfAbsent(ms.getShop().getId(), id -> new double[3]),
+                        ms.getTotalRevenue(), ms.getTotalExpenses(), ms.getProfit());
+            } else if (ms.getYear() == previousMonthStart.getYear() && ms.getMonth() == previousMonthStart.getMonthValue()) {
+                addTotals(previousMonthTotals, ms.getTotalRevenue(), ms.getTotalExpenses(), ms.getProfit());
+            }
+        }
+
+        double[] allTimeTotals = openMonthTotals.clone();
+        List<Object[]> allTime = monthlySummaryRepository.sumAllTotals();
+        if (!allTime.isEmpty()) {
+            Object[] row = allTime.get(0);
+            addTotals(allTimeTotals, ((Number) row[0]).doubleValue(), ((Number) row[1]).doubleValue(), ((Number) row[2]).doubleValue());
+        }
+
+        TopShopDTO topShop = null;
+        Long topShopId = null;
+        for (Map.Entry<Long, double[]> entry : shopMonthTotals.entrySet()) {
+            if (topShopId == null || entry.getValue()[2] > shopMonthTotals.get(topShopId)[2]) {
+                topShopId = entry.getKey();
+            }
+        }
+        if (topShopId != null) {
+            Shop shop = shops.get(topShopId);
+            double[] totals = shopMonthTotals.get(topShopId);
+            topShop = TopShopDTO.builder()
+                    .shopId(shop.getId())
+                    .shopCode(shop.getCode())
+                    .shopName(shop.getName())
+                    .revenue(totals[0])
+                    .expenses(totals[1])
+                    .profit(totals[2])
+                    .build();
+        }
+
+        List<ExpenseAggregate> monthExpenses = cashTransactionRepository
+                .aggregateExpensesByBusinessDateRange(monthStart, today);
+        List<TopExpenseCategoryDTO> topCategories = groupByCategory(monthExpenses, sumTotals(monthExpenses)).stream()
+                .sorted((a, b) -> Double.compare(b.getTotalAmount(), a.getTotalAmount()))
+                .limit(5)
+                .map(c -> TopExpenseCategoryDTO.builder()
+                        .expenseTypeId(c.getExpenseTypeId())
+                        .expenseTypeName(c.getExpenseTypeName())
+                        .amount(c.getTotalAmount())
+                        .build())
+                .collect(Collectors.toList());
+
         return BusinessSummaryDTO.builder()
+                .asOfDate(today.toString())
+                .summary(SummaryDataDTO.builder()
+                        .totalRevenue(allTimeTotals[0])
+                        .totalExpenses(allTimeTotals[1])
+                        .netProfit(allTimeTotals[2])
+                        .profitMargin(margin(allTimeTotals))
+                        .build())
+                .today(toPeriod(todayTotals))
+                .currentWeek(toPeriod(weekTotals))
+                .currentMonth(toPeriod(monthTotals))
+                .previousMonth(toPeriod(previousMonthTotals))
+                .currentYear(toPeriod(yearTotals))
+                .topPerformingShop(topShop)
+                .recentTrends(TrendsDTO.builder()
+                        .revenueGrowth(growth(monthTotals[0], previousMonthTotals[0]))
+                        .expenseGrowth(growth(monthTotals[1], previousMonthTotals[1]))
+                        .profitGrowth(growth(monthTotals[2], previousMonthTotals[2]))
+                        .build())
+                .topExpenseCategories(topCategories)
+                .build();
+    }
+
+    // totals layout: revenue, expenses, profit
+    private static void addTotals(double[] totals, Double revenue, Double expenses, Double profit) {
+        totals[0] += revenue != null ? revenue : 0.0;
+        totals[1] += expenses != null ? expenses : 0.0;
+        totals[2] += profit != null ? profit : 0.0;
+    }
+
+    private static PeriodDataDTO toPeriod(double[] totals) {
+        return PeriodDataDTO.builder()
+                .revenue(totals[0])
+                .expenses(totals[1])
+                .profit(totals[2])
+                .profitMargin(margin(totals))
                 .build();
     }
 
+    private static double margin(double[] totals) {
+        return totals[0] != 0 ? totals[2] / totals[0] * 100 : 0.0;
+    }
+
+    private static double growth(double current, double previous) {
+        return previous != 0 ? (current - previous) / Math.abs(previous) * 100 : 0.0;
+    }
+
     public Map<String, Object> getStaffPerformance(LocalDate startDate, LocalDate endDate) {
         List<DailySummary> summaries = dailySummaryRepository.findByBusinessDateBetween(startDate, endDate);
 
@@ -194,4 +342,23 @@ public class ReportService {
 
         return result;
     }
+
+    /**
+     * Month-by-month totals read from the monthly rollup table (at most 12 rows per shop per year)
+     */
+    public Map<String, Object> getMonthlySummaries(Long shopId, int startYear, int endYear) {
+        List<MonthlySummaryDTO> summaries = (shopId != null
+                ? monthlySummaryRepository.findByShopIdAndYearBetween(shopId, startYear, endYear)
+                : monthlySummaryRepository.findByYearBetween(startYear, endYear)).stream()
+                .map(MonthlySummaryDTO::from)
+                .collect(Collectors.toList());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("startYear", startYear);
+        result.put("endYear", endYear);
+        result.put("shopId", shopId);
+        result.put("data", summaries);
+
+        return result;
+    }
 }
@@ -1,12 +1,11 @@
 package com.oss.service;
 import com.oss.dto.OSS_DailySalaryDto;
+import com.oss.dto.PayrollEntryDTO;
 import com.oss.model.Attendance;
-import com.oss.model.AttendanceStatus;
 import com.oss.model.Role;
 import com.oss.model.StaffSalaryReport;
 import com.oss.model.User;
 import com.oss.repository.AttendanceRepository;
-import com.oss.repository.CreditRepository;
 import com.oss.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -18,14 +17,17 @@ import org.springframework.web.server.ResponseStatusException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 public class SalaryReportService {
     private final AttendanceRepository attendanceRepository;
-    private final CreditRepository creditRepository;
+    private final CreditLedgerService creditLedgerService;
+    private final PayrollService payrollService;
     private final UserRepository userRepository;
     private User getCurrentUser() {
         Authentication auth = SecurityContextHolder
@@ -45,150 +47,79 @@ public class SalaryReportService {
                     "Access denied"
             );
         }
-        LocalDate from = LocalDate.of(year, month, 1);
-        LocalDate to = from.withDayOfMonth(from.lengthOfMonth());
-        return attendanceRepository.getMonthlyStaffSalary(from, to);
+        // Same rule as the per-user salary pages (overtime at hourlyRate, deductions at deductionRatePerHour)
+        return payrollService.runPayroll(year, month).getStaff().stream()
+                .map(e -> new StaffSalaryReport(e.getUserId(), e.getName(), e.getTotalDaysWorked(),
+                        e.getTotalOvertimeHours(), e.getTotalDeductionHours(), e.getDailySalary(), e.getBaseSalary()))
+                .collect(Collectors.toList());
     }
     public Map<String, Object> calculateMyMonthlySalary(int year, int month) {
         User user = getCurrentUser();
         ZoneId zone = ZoneId.of("Asia/Colombo");
-        LocalDate from = LocalDate.of(year, month, 1);
-        LocalDate to = from.withDayOfMonth(from.lengthOfMonth());
-        List<Attendance> list = attendanceRepository.findByUserAndWorkDateBetweenOrderByWorkDateDesc(user, from, to);
-        List<OSS_DailySalaryDto> daily = new ArrayList<>();
-        double totalSalary = 0.0;
-        int daysWorked = 0;
-
-        Double dailySalaryRate = user.getDailySalary() != null ? user.getDailySalary() : 0.0;
-        Double deductionRate = user.getDeductionRatePerHour() != null ? user.getDeductionRatePerHour() : 0.0;
-        for (Attendance a : list) {
-            double hours = 0.0;
-            boolean qualified = false;
-
-            // ✅ NEW LOGIC: Use isWorking flag instead of check-in/check-out times
-            if (a.getIsWorking() != null && a.getIsWorking()) {
-                hours = 8.0; // Standard 8-hour workday
-                qualified = true;
-            }
-
-            double daySalary = 0.0;
-            if (qualified) {
-                daySalary = dailySalaryRate;
-                if (a.getOvertimeHours() != null && a.getOvertimeHours() > 0) {
-                    daySalary += a.getOvertimeHours() * (user.getHourlyRate() != null ? user.getHourlyRate() : 0.0);
-                }
-                if (a.getDeductionHours() != null && a.getDeductionHours() > 0) {
-                    daySalary -= a.getDeductionHours() * deductionRate;
-                }
-                daysWorked++;
-            } else {
-                // User marked as NOT_WORKING - no salary
-                daySalary = 0.0;
-            }
-            totalSalary += daySalary;
-            // Create daily breakdown with overtime/deduction info
-            OSS_DailySalaryDto dayDto = new OSS_DailySalaryDto();
-            dayDto.setDate(a.getWorkDate());
-            dayDto.setHours(hours);
-            dayDto.setSalary(daySalary);
-            dayDto.setOvertimeHours(a.getOvertimeHours() != null ? a.getOvertimeHours() : 0.0);
-            dayDto.setDeductionHours(a.getDeductionHours() != null ? a.getDeductionHours() : 0.0);
-            dayDto.setOvertimeReason(a.getOvertimeReason());
-            dayDto.setDeductionReason(a.getDeductionReason());
-            dayDto.setQualified(qualified);
-            daily.add(dayDto);
-        }
+        PayrollEntryDTO entry = payrollService.findClosedEntry(user.getId(), year, month).orElseGet(() -> {
+            LocalDate from = LocalDate.of(year, month, 1);
+            LocalDate to = from.withDayOfMonth(from.lengthOfMonth());
+            List<Attendance> list = attendanceRepository.findByUserAndWorkDateBetweenOrderByWorkDateDesc(user, from, to);
+            return SalaryRule.compute(user, list, 0.0);
+        });
+        List<OSS_DailySalaryDto> daily = new ArrayList<>(entry.getDailyBreakdown());
+        Collections.reverse(daily); // newest first, as the attendance was read
         Map<String, Object> res = new HashMap<>();
-        res.put("dailySalary", dailySalaryRate);
-        res.put("deductionRatePerHour", deductionRate);
-        res.put("totalDaysWorked", daysWorked);
-        res.put("totalSalary", totalSalary);
+        res.put("dailySalary", entry.getDailySalary());
+        res.put("deductionRatePerHour", entry.getDeductionRatePerHour());
+        res.put("totalDaysWorked", entry.getTotalDaysWorked());
+        res.put("totalSalary", entry.getBaseSalary());
         res.put("dailyBreakdown", daily);
         return res;
     }
     public Map<String, Object> getUserMonthlySalary(Long userId, int year, int month) {
+        // A closed month is served from its snapshot, as it was when the period was closed
+        PayrollEntryDTO closed = payrollService.findClosedEntry(userId, year, month).orElse(null);
+        PayrollEntryDTO entry = closed != null ? closed : computeUserMonth(userId, year, month);
+
+        Map<String, Object> res = new HashMap<>();
+        res.put("userId", entry.getUserId());
+        res.put("name", entry.getName());
+        res.put("email", entry.getEmail());
+        res.put("dailySalary", entry.getDailySalary());
+        res.put("hourlyRate", entry.getHourlyRate());
+        res.put("deductionRatePerHour", entry.getDeductionRatePerHour());
+        res.put("totalDaysWorked", entry.getTotalDaysWorked());
+        res.put("baseSalary", entry.getBaseSalary());      // Salary before credits
+        res.put("totalCredits", entry.getTotalCredits());  // Credits to deduct
+        res.put("totalSalary", entry.getTotalSalary());    // Final salary after credits
+        res.put("dailyBreakdown", breakdownNewestFirst(entry));
+        res.put("minHoursRequired", SalaryRule.MIN_HOURS);
+        res.put("periodClosed", closed != null);
+        return res;
+    }
+    private PayrollEntryDTO computeUserMonth(Long userId, int year, int month) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
         LocalDate from = LocalDate.of(year, month, 1);
         LocalDate to = from.withDayOfMonth(from.lengthOfMonth());
         List<Attendance> list = attendanceRepository.findByUserAndWorkDateBetweenOrderByWorkDateDesc(user, from, to);
-        double totalSalary = 0.0;
-        int daysWorked = 0;
-        final double MIN_HOURS = 6.0;
-        Double dailySalaryRate = user.getDailySalary() != null ? user.getDailySalary() : 0.0;
-        Double hourlyRate = user.getHourlyRate() != null ? user.getHourlyRate() : 0.0;
-        Double deductionRate = user.getDeductionRatePerHour() != null ? user.getDeductionRatePerHour() : 0.0;
+        double totalCredits = creditLedgerService.getMonthTotal(userId, year, month);
+        return SalaryRule.compute(user, list, totalCredits);
+    }
+    /**
+     * Daily breakdown of a salary entry in the map shape of the salary endpoints, newest day first
+     */
+    public static List<Map<String, Object>> breakdownNewestFirst(PayrollEntryDTO entry) {
         List<Map<String, Object>> dailyBreakdown = new ArrayList<>();
-
-        for (Attendance a : list) {
-            double hours = 0.0;
-            double daySalary = 0.0;
-            boolean qualified = false;
-
-            // ✅ SIMPLE LOGIC: Status-based only, ignore timestamps
-            if (a.getStatus() == AttendanceStatus.WORKING ||
-                a.getStatus() == AttendanceStatus.CHECKED_IN ||
-                a.getStatus() == AttendanceStatus.COMPLETED) {
-                // User clicked YES or it's a legacy WORKING record
-                hours = 8.0;  // Always 8 hours for working days
-                qualified = true;
-                daySalary = dailySalaryRate;
-                daysWorked++;
-
-                // Add overtime
-                if (a.getOvertimeHours() != null && a.getOvertimeHours() > 0) {
-                    daySalary += a.getOvertimeHours() * hourlyRate;
-                }
-                // Deduct
-                if (a.getDeductionHours() != null && a.getDeductionHours() > 0) {
-                    daySalary -= a.getDeductionHours() * deductionRate;
-                }
-            }
-            else if (a.getStatus() == AttendanceStatus.NOT_WORKING) {
-                // User clicked NO
-                hours = 0.0;
-                qualified = false;
-                daySalary = 0.0;
-            }
-
-            totalSalary += daySalary;
-
+        for (OSS_DailySalaryDto d : entry.getDailyBreakdown()) {
             Map<String, Object> day = new HashMap<>();
-            day.put("date", a.getWorkDate().toString());
-            day.put("hours", hours);
-            day.put("salary", daySalary);
-            day.put("overtimeHours", a.getOvertimeHours() != null ? a.getOvertimeHours() : 0.0);
-            day.put("deductionHours", a.getDeductionHours() != null ? a.getDeductionHours() : 0.0);
-            day.put("overtimeReason", a.getOvertimeReason());
-            day.put("deductionReason", a.getDeductionReason());
-            day.put("qualified", qualified);
-            day.put("status", a.getStatus().name());
-            dailyBreakdown.add(day);
+            day.put("date", d.getDate().toString());
+            day.put("hours", d.getHours());
+            day.put("salary", d.getSalary());
+            day.put("overtimeHours", d.getOvertimeHours());
+            day.put("deductionHours", d.getDeductionHours());
+            day.put("overtimeReason", d.getOvertimeReason());
+            day.put("deductionReason", d.getDeductionReason());
+            day.put("qualified", d.getQualified());
+            day.put("status", d.getStatus());
+            dailyBreakdown.add(0, day);
         }
-
-        Map<String, Object> res = new HashMap<>();
-        res.put("userId", user.getId());
-        res.put("name", user.getName());
-        res.put("email", user.getEmail());
-        res.put("dailySalary", dailySalaryRate);
-        res.put("hourlyRate", hourlyRate);
-        res.put("deductionRatePerHour", deductionRate);
-        res.put("totalDaysWorked", daysWorked);
-
-        // ✅ NEW: Get credits for this month and deduct from salary
-        Double totalCredits = creditRepository.sumCreditsByUserIdAndDateRange(userId, from, to);
-        if (totalCredits == null) {
-            totalCredits = 0.0;
-        }
-
-        // Calculate final salary after credits deduction
-        double finalSalary = totalSalary - totalCredits;
-
-        res.put("baseSalary", totalSalary);        // Salary before credits
-        res.put("totalCredits", totalCredits);      // Credits to deduct
-        res.put("totalSalary", finalSalary);        // Final salary after credits
-        res.put("dailyBreakdown", dailyBreakdown);
-        res.put("minHoursRequired", MIN_HOURS);
-        return res;
+        return dailyBreakdown;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package com.oss.service;
+import com.oss.dto.OSS_DailySalaryDto;
+import com.oss.dto.PayrollEntryDTO;
+import com.oss.model.Attendance;
+import com.oss.model.User;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+/**
+ * Salary Rule - The one place that decides what an attendance day pays
+ * A day counts when it is marked working (isWorking = YES) and is paid as
+ * dailySalary + overtimeHours * hourlyRate - deductionHours * deductionRatePerHour.
+ * Every salary endpoint and the payroll run use this class so their figures agree.
+ */
+public final class SalaryRule {
+    public static final double STANDARD_HOURS = 8.0; // hours credited for a working day
+    public static final double MIN_HOURS = 6.0;      // reported to clients for display only
+
+    private SalaryRule() {
+    }
+
+    public static boolean isWorkingDay(Attendance attendance) {
+        return attendance != null && Boolean.TRUE.equals(attendance.getIsWorking());
+    }
+
+    public static double hours(Attendance attendance) {
+        return isWorkingDay(attendance) ? STANDARD_HOURS : 0.0;
+    }
+
+    public static double daySalary(Attendance attendance, User user) {
+        if (!isWorkingDay(attendance)) {
+            return 0.0;
+        }
+        double salary = dailyRate(user);
+        if (attendance.getOvertimeHours() != null && attendance.getOvertimeHours() > 0) {
+            salary += attendance.getOvertimeHours() * hourlyRate(user);
+        }
+        if (attendance.getDeductionHours() != null && attendance.getDeductionHours() > 0) {
+            salary -= attendance.getDeductionHours() * deductionRate(user);
+        }
+        return salary;
+    }
+
+    public static double dailyRate(User user) {
+        return user.getDailySalary() != null ? user.getDailySalary() : 0.0;
+    }
+
+    public static double hourlyRate(User user) {
+        return user.getHourlyRate() != null ? user.getHourlyRate() : 0.0;
+    }
+
+    public static double deductionRate(User user) {
+        return user.getDeductionRatePerHour() != null ? user.getDeductionRatePerHour() : 0.0;
+    }
+
+    /**
+     * Salary of one staff member for a period
+     * @param attendances  the member's attendance in the period, in any order
+     * @param totalCredits credits to deduct for the period
+     */
+    public static PayrollEntryDTO compute(User user, List<Attendance> attendances, double totalCredits) {
+        List<Attendance> days = new ArrayList<>(attendances);
+        days.sort(Comparator.comparing(Attendance::getWorkDate));
+        List<OSS_DailySalaryDto> breakdown = new ArrayList<>(days.size());
+        int daysWorked = 0;
+        double baseSalary = 0.0;
+        double overtimeHours = 0.0;
+        double deductionHours = 0.0;
+        for (Attendance attendance : days) {
+            boolean working = isWorkingDay(attendance);
+            double salary = daySalary(attendance, user);
+            double overtime = attendance.getOvertimeHours() != null ? attendance.getOvertimeHours() : 0.0;
+            double deduction = attendance.getDeductionHours() != null ? attendance.getDeductionHours() : 0.0;
+            if (working) {
+                daysWorked++;
+                overtimeHours += overtime;
+                deductionHours += deduction;
+            }
+            baseSalary += salary;
+            OSS_DailySalaryDto day = new OSS_DailySalaryDto();
+            day.setDate(attendance.getWorkDate());
+            day.setHours(hours(attendance));
+            day.setSalary(salary);
+            day.setOvertimeHours(overtime);
+            day.setDeductionHours(deduction);
+            day.setOvertimeReason(attendance.getOvertimeReason());
+            day.setDeductionReason(attendance.getDeductionReason());
+            day.setQualified(working);
+            day.setStatus(attendance.getStatus() != null ? attendance.getStatus().name() : null);
+            breakdown.add(day);
+        }
+        return PayrollEntryDTO.builder()
+                .userId(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .dailySalary(dailyRate(user))
+                .hourlyRate(hourlyRate(user))
+                .deductionRatePerHour(deductionRate(user))
+                .totalDaysWorked(daysWorked)
+                .totalHours(daysWorked * STANDARD_HOURS)
+                .totalOvertimeHours(overtimeHours)
+                .totalDeductionHours(deductionHours)
+                .baseSalary(baseSalary)
+                .totalCredits(totalCredits)
+                .totalSalary(baseSalary - totalCredits)
+                .dailyBreakdown(breakdown)
+                .build();
+    }
+}
@@ -0,0 +1,285 @@
+package com.oss.service;
+import com.oss.model.*;
+import com.oss.repository.*;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+/**
+ * Summary Backfill Service - Recalculates daily summaries of closed days as a background job
+ * The range is walked in chunks of days: each chunk is read in one short read-only transaction,
+ * its summaries are computed on worker threads, and they are written in one transaction together
+ * with the job's progress. Days whose stored summary was changed by a live write after the chunk was
+ * read are left as they are, since that summary already carries the newer totals.
+ * A job still RUNNING at startup resumes from its next unprocessed day.
+ */
+@Service
+public class SummaryBackfillService {
+    private static final Logger log = LoggerFactory.getLogger(SummaryBackfillService.class);
+    public static final int DEFAULT_CHUNK_DAYS = 31;
+    public static final int MAX_CHUNK_DAYS = 366;
+    private static final int WORKER_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final SummaryBackfillJobRepository jobRepo;
+    private final DailyCashRepository dailyCashRepo;
+    private final CashTransactionRepository cashTransactionRepo;
+    private final CreditRepository creditRepo;
+    private final AttendanceRepository attendanceRepo;
+    private final DailySummaryService dailySummaryService;
+    private final DailySummaryRepository dailySummaryRepo;
+    private final TransactionTemplate readTx;
+    private final TransactionTemplate writeTx;
+    // Jobs run one at a time, and every write of a job happens on this thread
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(daemonThreads("summary-backfill"));
+    // Computes the summaries of a chunk from rows already in memory, so it holds no database connection
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS, daemonThreads("summary-backfill-worker"));
+
+    public SummaryBackfillService(SummaryBackfillJobRepository jobRepo,
+                                  DailyCashRepository dailyCashRepo,
+                                  CashTransactionRepository cashTransactionRepo,
+                                  CreditRepository creditRepo,
+                                  AttendanceRepository attendanceRepo,
+                                  DailySummaryService dailySummaryService,
+                                  DailySummaryRepository dailySummaryRepo,
+                                  PlatformTransactionManager transactionManager) {
+        this.jobRepo = jobRepo;
+        this.dailyCashRepo = dailyCashRepo;
+        this.cashTransactionRepo = cashTransactionRepo;
+        this.creditRepo = creditRepo;
+        this.attendanceRepo = attendanceRepo;
+        this.dailySummaryService = dailySummaryService;
+        this.dailySummaryRepo = dailySummaryRepo;
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+        this.writeTx = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Start a backfill of the given range
+     * If a job is already running it is returned instead, since a second one would only redo the same writes
+     * @param chunkDays business days per transaction, null for the default
+     */
+    public synchronized SummaryBackfillJob start(LocalDate startDate, LocalDate endDate, Integer chunkDays) {
+        if (startDate.isAfter(endDate)) {
+            throw new RuntimeException("Start date must not be after end date");
+        }
+        int chunk = chunkDays != null ? chunkDays : DEFAULT_CHUNK_DAYS;
+        if (chunk < 1 || chunk > MAX_CHUNK_DAYS) {
+            throw new RuntimeException("Chunk size must be between 1 and " + MAX_CHUNK_DAYS + " days");
+        }
+        List<SummaryBackfillJob> running = jobRepo.findByStatusOrderById(BackfillJobStatus.RUNNING);
+        if (!running.isEmpty()) {
+            return running.get(0);
+        }
+        long now = System.currentTimeMillis();
+        SummaryBackfillJob job = jobRepo.save(SummaryBackfillJob.builder()
+                .status(BackfillJobStatus.RUNNING)
+                .startDate(startDate)
+                .endDate(endDate)
+                .chunkDays(chunk)
+                .nextDate(startDate)
+                .totalDays((int) ChronoUnit.DAYS.between(startDate, endDate) + 1)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        submit(job.getId());
+        return job;
+    }
+
+    /**
+     * Start a backfill from the first to the last business date on record
+     * @return the job, or null when there are no days to backfill
+     */
+    public SummaryBackfillJob startFullHistory(Integer chunkDays) {
+        List<Object[]> range = dailyCashRepo.findBusinessDateRange();
+        if (range.isEmpty() || range.get(0)[0] == null) {
+            return null;
+        }
+        return start((LocalDate) range.get(0)[0], (LocalDate) range.get(0)[1], chunkDays);
+    }
+
+    /**
+     * Continue a failed job from the chunk that failed
+     */
+    public synchronized SummaryBackfillJob resume(Long jobId) {
+        SummaryBackfillJob job = getJob(jobId);
+        if (job.getStatus() != BackfillJobStatus.FAILED) {
+            return job;
+        }
+        List<SummaryBackfillJob> running = jobRepo.findByStatusOrderById(BackfillJobStatus.RUNNING);
+        if (!running.isEmpty()) {
+            throw new RuntimeException("Backfill job " + running.get(0).getId() + " is already running");
+        }
+        job.setStatus(BackfillJobStatus.RUNNING);
+        job.setErrorMessage(null);
+        job.setUpdatedAt(System.currentTimeMillis());
+        job = jobRepo.save(job);
+        submit(job.getId());
+        return job;
+    }
+
+    public SummaryBackfillJob getJob(Long jobId) {
+        return jobRepo.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Backfill job not found"));
+    }
+
+    public SummaryBackfillJob getLatestJob() {
+        return jobRepo.findFirstByOrderByIdDesc().orElse(null);
+    }
+
+    /**
+     * Progress of a job as returned by the admin endpoints
+     */
+    public static Map<String, Object> describe(SummaryBackfillJob job) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("jobId", job.getId());
+        status.put("status", job.getStatus());
+        status.put("startDate", job.getStartDate().toString());
+        status.put("endDate", job.getEndDate().toString());
+        status.put("nextDate", job.getNextDate().toString());
+        status.put("chunkDays", job.getChunkDays());
+        status.put("totalDays", job.getTotalDays());
+        status.put("processedDays", job.getProcessedDays());
+        status.put("percentComplete", job.getTotalDays() > 0 ? Math.round(job.getProcessedDays() * 1000.0 / job.getTotalDays()) / 10.0 : 100.0);
+        status.put("summariesWritten", job.getSummariesWritten());
+        status.put("errorMessage", job.getErrorMessage());
+        status.put("createdAt", job.getCreatedAt());
+        status.put("updatedAt", job.getUpdatedAt());
+        status.put("completedAt", job.getCompletedAt());
+        return status;
+    }
+
+    /**
+     * Pick up jobs that were still running when the application stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        for (SummaryBackfillJob job : jobRepo.findByStatusOrderById(BackfillJobStatus.RUNNING)) {
+            log.info("Resuming summary backfill job {} at {}", job.getId(), job.getNextDate());
+            submit(job.getId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void submit(Long jobId) {
+        runner.submit(() -> run(jobId));
+    }
+
+    private void run(Long jobId) {
+        try {
+            SummaryBackfillJob job = jobRepo.findById(jobId).orElse(null);
+            if (job == null || job.getStatus() != BackfillJobStatus.RUNNING) {
+                return;
+            }
+            while (!job.getNextDate().isAfter(job.getEndDate())) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Shutting down: the job stays RUNNING and resumes at the next startup
+                    return;
+                }
+                job = processChunk(job);
+            }
+            long now = System.currentTimeMillis();
+            job.setStatus(BackfillJobStatus.COMPLETED);
+            job.setUpdatedAt(now);
+            job.setCompletedAt(now);
+            jobRepo.save(job);
+            log.info("Summary backfill job {} completed: {} summaries written", jobId, job.getSummariesWritten());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Summary backfill job {} failed", jobId, e);
+            jobRepo.findById(jobId).ifPresent(job -> {
+                String message = String.valueOf(e.getMessage());
+                job.setStatus(BackfillJobStatus.FAILED);
+                job.setErrorMessage(message.length() > 1000 ? message.substring(0, 1000) : message);
+                job.setUpdatedAt(System.currentTimeMillis());
+                jobRepo.save(job);
+            });
+        }
+    }
+
+    /**
+     * Recalculate one chunk of days and advance the job past it
+     */
+    private SummaryBackfillJob processChunk(SummaryBackfillJob job) throws InterruptedException, ExecutionException {
+        LocalDate chunkStart = job.getNextDate();
+        LocalDate chunkEnd = chunkStart.plusDays(job.getChunkDays() - 1L);
+        if (chunkEnd.isAfter(job.getEndDate())) {
+            chunkEnd = job.getEndDate();
+        }
+        LocalDate lastDate = chunkEnd;
+        List<Future<DailySummary>> futures = new ArrayList<>();
+        // calculatedAt of the stored summaries as of the read, to spot the ones changed before the write
+        Map<String, Long> readVersions = new HashMap<>();
+        readTx.executeWithoutResult(status -> {
+            for (DailySummary summary : dailySummaryRepo.findByBusinessDateBetween(chunkStart, lastDate)) {
+                readVersions.put(key(summary.getShop().getId(), summary.getBusinessDate()), summary.getCalculatedAt());
+            }
+            List<DailyCash> days = dailyCashRepo.findLockedWithShopByBusinessDateBetween(chunkStart, lastDate);
+            Map<Long, List<CashTransaction>> transactionsByDay = cashTransactionRepo
+                    .findWithDetailsByBusinessDateBetween(chunkStart, lastDate).stream()
+                    .collect(Collectors.groupingBy(ct -> ct.getDailyCash().getId()));
+            Map<String, List<Credit>> creditsByShopDay = creditRepo
+                    .findWithShopByTransactionDateBetween(chunkStart, lastDate).stream()
+                    .collect(Collectors.groupingBy(c -> key(c.getShop().getId(), c.getTransactionDate())));
+            Map<LocalDate, List<Attendance>> attendanceByDate = attendanceRepo
+                    .findByWorkDateBetween(chunkStart, lastDate).stream()
+                    .collect(Collectors.groupingBy(Attendance::getWorkDate));
+            for (DailyCash day : days) {
+                List<CashTransaction> transactions = transactionsByDay.getOrDefault(day.getId(), List.of());
+                List<Credit> credits = creditsByShopDay.getOrDefault(key(day.getShop().getId(), day.getBusinessDate()), List.of());
+                List<Attendance> attendances = attendanceByDate.getOrDefault(day.getBusinessDate(), List.of());
+                futures.add(workers.submit(() -> DailySummaryService.computeSummary(day, transactions, credits, attendances)));
+            }
+        });
+        List<DailySummary> computed = new ArrayList<>(futures.size());
+        for (Future<DailySummary> future : futures) {
+            computed.add(future.get());
+        }
+        return writeTx.execute(status -> {
+            int written = dailySummaryService.saveComputedSummaries(computed, readVersions).size();
+            if (written < computed.size()) {
+                log.info("Summary backfill job {}: {} days between {} and {} changed while being recalculated, kept as they are",
+                        job.getId(), computed.size() - written, chunkStart, lastDate);
+            }
+            SummaryBackfillJob current = getJob(job.getId());
+            current.setNextDate(lastDate.plusDays(1));
+            current.setProcessedDays(current.getProcessedDays() + (int) ChronoUnit.DAYS.between(chunkStart, lastDate) + 1);
+            current.setSummariesWritten(current.getSummariesWritten() + written);
+            current.setUpdatedAt(System.currentTimeMillis());
+            return jobRepo.save(current);
+        });
+    }
+
+    private static String key(Long shopId, LocalDate date) {
+        return shopId + ":" + date;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
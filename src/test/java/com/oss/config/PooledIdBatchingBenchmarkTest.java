@@ -0,0 +1,170 @@
+package com.oss.config;
+import com.oss.model.AuditLog;
+import com.oss.model.BackfillJobStatus;
+import com.oss.model.Role;
+import com.oss.model.Shop;
+import com.oss.model.SummaryBackfillJob;
+import com.oss.model.User;
+import com.oss.repository.AuditLogRepository;
+import com.oss.repository.DailyCashRepository;
+import com.oss.repository.ShopRepository;
+import com.oss.repository.UserRepository;
+import com.oss.service.SummaryBackfillService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/**
+ * Batch inserts through PooledIdGenerator for the three bulk paths: rows written after a migration
+ * from IDENTITY, a summary backfill, and plain bulk ingestion
+ * Each case logs rows written, JDBC statements prepared and elapsed time.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.com.oss.config.PooledIdBatchingBenchmarkTest=INFO"
+})
+class PooledIdBatchingBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(PooledIdBatchingBenchmarkTest.class);
+    private static final int BULK_ROWS = 5000;
+    private static final int MIGRATED_ROWS = 1000;
+    private static final int BACKFILL_DAYS = 365;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        Path dir = Files.createTempDirectory("oss-test");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + dir.resolve("oss.db"));
+    }
+
+    @Autowired
+    private AuditLogRepository auditLogRepo;
+    @Autowired
+    private UserRepository userRepo;
+    @Autowired
+    private ShopRepository shopRepo;
+    @Autowired
+    private DailyCashRepository dailyCashRepo;
+    @Autowired
+    private SummaryBackfillService summaryBackfillService;
+    @Autowired
+    private IdSequenceInitializer idSequenceInitializer;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = userRepo.findByEmail("benchmark@test").orElseGet(() -> userRepo.save(User.builder()
+                .name("Benchmark").email("benchmark@test").password("x").role(Role.SUPERADMIN).build()));
+    }
+
+    @Test
+    void bulkInsertIsBatched() {
+        statistics.clear();
+        long begin = System.nanoTime();
+        List<AuditLog> saved = new TransactionTemplate(transactionManager)
+                .execute(status -> auditLogRepo.saveAll(auditLogs(BULK_ROWS)));
+        report("bulk insert", BULK_ROWS, begin);
+
+        assertEquals(BULK_ROWS, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() < BULK_ROWS / 10, "inserts go out in batches");
+        long first = saved.get(0).getId();
+        assertEquals(first + BULK_ROWS - 1, saved.get(BULK_ROWS - 1).getId(), "one transaction uses a contiguous range");
+    }
+
+    @Test
+    void singleRowWritesLeaveNoGap() {
+        AuditLog first = auditLogRepo.save(auditLogs(1).get(0));
+        AuditLog second = auditLogRepo.save(auditLogs(1).get(0));
+        assertEquals(first.getId() + 1, second.getId());
+    }
+
+    @Test
+    void migratedRowsKeepTheirIds() {
+        // Rows written before the switch from IDENTITY, with rowid-assigned ids beyond the sequence
+        long migratedMax = 1_000_000L + MIGRATED_ROWS;
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1_000_001L; id <= migratedMax; id++) {
+            rows.add(new Object[]{id, user.getId(), Instant.now().toEpochMilli()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO audit_logs (id, user_id, action, entity_type, entity_id, created_at) " +
+                "VALUES (?, ?, 'IMPORT', 'MIGRATION', 0, ?)", rows);
+        idSequenceInitializer.alignSequences();
+
+        statistics.clear();
+        long begin = System.nanoTime();
+        List<AuditLog> saved = new TransactionTemplate(transactionManager)
+                .execute(status -> auditLogRepo.saveAll(auditLogs(MIGRATED_ROWS)));
+        report("after migration", MIGRATED_ROWS, begin);
+
+        assertTrue(saved.stream().allMatch(log -> log.getId() > migratedMax), "new ids start past the migrated rows");
+        assertTrue(statistics.getPrepareStatementCount() < MIGRATED_ROWS / 10, "inserts go out in batches");
+    }
+
+    @Test
+    void backfillIsBatched() throws Exception {
+        List<Shop> shops = List.of(
+                shopRepo.save(Shop.builder().code("BENCH1").name("Bench 1").build()),
+                shopRepo.save(Shop.builder().code("BENCH2").name("Bench 2").build()));
+        LocalDate startDate = LocalDate.of(2023, 1, 1);
+        LocalDate endDate = startDate.plusDays(BACKFILL_DAYS - 1L);
+        for (Shop shop : shops) {
+            for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                dailyCashRepo.insertIfAbsent(shop.getId(), date, 100.0);
+            }
+        }
+        jdbcTemplate.update("UPDATE daily_cash SET locked = 1, closing_cash = 250");
+
+        statistics.clear();
+        long begin = System.nanoTime();
+        SummaryBackfillJob job = summaryBackfillService.start(startDate, endDate, null);
+        while (job.getStatus() == BackfillJobStatus.RUNNING) {
+            Thread.sleep(50);
+            job = summaryBackfillService.getJob(job.getId());
+        }
+        int rows = shops.size() * BACKFILL_DAYS;
+        report("summary backfill of " + BACKFILL_DAYS + " days x " + shops.size() + " shops", rows, begin);
+
+        assertEquals(BackfillJobStatus.COMPLETED, job.getStatus());
+        assertEquals(rows, job.getSummariesWritten());
+        assertTrue(statistics.getPrepareStatementCount() < rows / 2, "summaries go out in batches");
+    }
+
+    private List<AuditLog> auditLogs(int count) {
+        List<AuditLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            logs.add(AuditLog.builder().user(user).action("CREATE").entityType("BENCHMARK")
+                    .entityId((long) i).createdAt(Instant.now()).build());
+        }
+        return logs;
+    }
+
+    private void report(String scenario, int rows, long begin) {
+        log.info("{}: {} rows, {} statements, {} ms", scenario, rows,
+                statistics.getPrepareStatementCount(), (System.nanoTime() - begin) / 1_000_000);
+    }
+}
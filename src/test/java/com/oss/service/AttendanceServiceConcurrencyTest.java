@@ -0,0 +1,95 @@
+package com.oss.service;
+import com.oss.config.WorkTimeConfig;
+import com.oss.model.Attendance;
+import com.oss.model.AttendanceStatus;
+import com.oss.model.Role;
+import com.oss.model.User;
+import com.oss.repository.AttendanceRepository;
+import com.oss.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+/**
+ * Repeated check-ins and check-outs sent at the same moment, e.g. a double-tapped button,
+ * must leave one attendance row per user and day
+ */
+@SpringBootTest
+class AttendanceServiceConcurrencyTest {
+    private static final int USERS = 6;
+    private static final int CALLS_PER_USER = 8;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        Path dir = Files.createTempDirectory("oss-test");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + dir.resolve("oss.db"));
+    }
+
+    @Autowired
+    private AttendanceService attendanceService;
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void concurrentCheckInsLeaveOneRowPerUserAndDay() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(userRepository.save(User.builder()
+                    .name("Staff " + i).email("staff" + i + "@test").password("x").role(Role.STAFF).build()));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(USERS * CALLS_PER_USER);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Attendance>> results = new ArrayList<>();
+        try {
+            for (User user : users) {
+                for (int i = 0; i < CALLS_PER_USER; i++) {
+                    boolean checkIn = i % 2 == 0;
+                    results.add(pool.submit(() -> {
+                        SecurityContextHolder.getContext().setAuthentication(
+                                new UsernamePasswordAuthenticationToken(user.getEmail(), null, List.of()));
+                        start.await();
+                        return checkIn ? attendanceService.checkIn(null) : attendanceService.checkOut(null);
+                    }));
+                }
+            }
+            start.countDown();
+            for (Future<Attendance> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        LocalDate today = LocalDate.now(WorkTimeConfig.DEFAULT_ZONE);
+        for (User user : users) {
+            List<Attendance> rows = attendanceRepository.findByUserAndWorkDateBetween(user, today.minusDays(1), today.plusDays(1));
+            assertEquals(1, rows.size(), "one row for " + user.getEmail());
+        }
+        // The upsert still updates the row in place
+        User first = users.get(0);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(first.getEmail(), null, List.of()));
+        try {
+            assertEquals(AttendanceStatus.NOT_WORKING, attendanceService.checkOut(null).getStatus());
+            assertEquals(AttendanceStatus.WORKING, attendanceService.checkIn(null).getStatus());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
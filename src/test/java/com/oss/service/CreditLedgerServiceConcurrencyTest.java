@@ -0,0 +1,86 @@
+package com.oss.service;
+import com.oss.model.Credit;
+import com.oss.model.CreditBalance;
+import com.oss.model.CreditMonthlyBalance;
+import com.oss.model.Role;
+import com.oss.model.User;
+import com.oss.repository.CreditBalanceRepository;
+import com.oss.repository.CreditMonthlyBalanceRepository;
+import com.oss.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+/**
+ * A staff member's first credits arriving at the same moment must all land in one balance row
+ * and one month row, instead of one of them failing on the unique index
+ * The ledger is driven directly: each call starts with the upsert, so concurrent writers wait on the
+ * busy timeout instead of failing a read-then-write transaction under SQLite
+ */
+@SpringBootTest
+class CreditLedgerServiceConcurrencyTest {
+    private static final int CREDITS = 8;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        Path dir = Files.createTempDirectory("oss-test");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + dir.resolve("oss.db"));
+    }
+
+    @Autowired
+    private CreditLedgerService creditLedgerService;
+    @Autowired
+    private CreditBalanceRepository balanceRepo;
+    @Autowired
+    private CreditMonthlyBalanceRepository monthlyBalanceRepo;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void concurrentFirstCreditsShareOneLedgerRow() throws Exception {
+        User user = userRepository.save(User.builder()
+                .name("Borrower").email("borrower@test").password("x").role(Role.STAFF).build());
+        ExecutorService pool = Executors.newFixedThreadPool(CREDITS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < CREDITS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    Credit credit = new Credit();
+                    credit.setUser(user);
+                    credit.setAmount(25.0);
+                    credit.setTransactionDate(LocalDate.of(2024, 4, 10));
+                    creditLedgerService.creditAdded(credit);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        CreditBalance balance = balanceRepo.findByUserId(user.getId()).orElseThrow();
+        assertEquals(CREDITS * 25.0, balance.getTotalAmount());
+        assertEquals(CREDITS, balance.getCreditCount());
+        assertEquals(CREDITS, balance.getUnpaidCount());
+        CreditMonthlyBalance month = monthlyBalanceRepo.findByUserIdAndYearAndMonth(user.getId(), 2024, 4).orElseThrow();
+        assertEquals(CREDITS * 25.0, month.getTotalAmount());
+        assertEquals(CREDITS, month.getCreditCount());
+    }
+}
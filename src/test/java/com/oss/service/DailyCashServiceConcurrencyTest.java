@@ -0,0 +1,141 @@
+package com.oss.service;
+import com.oss.model.DailyCash;
+import com.oss.model.Shop;
+import com.oss.repository.DailyCashRepository;
+import com.oss.repository.ShopRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/**
+ * Many requests opening the same shop's day at once must all get the one row,
+ * while other shops opening their days are not held up by them
+ */
+@SpringBootTest(properties = "logging.level.com.oss.service.DailyCashServiceConcurrencyTest=INFO")
+class DailyCashServiceConcurrencyTest {
+    private static final Logger log = LoggerFactory.getLogger(DailyCashServiceConcurrencyTest.class);
+    private static final int SHOPS = 4;
+    private static final int CALLERS_PER_SHOP = 12;
+    private static final int CONTENDING_THREADS = 16;
+    private static final int CONTENDED_DAYS = 40;
+    private static final int QUIET_DAYS = 10;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        Path dir = Files.createTempDirectory("oss-test");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + dir.resolve("oss.db"));
+    }
+
+    @Autowired
+    private DailyCashService dailyCashService;
+    @Autowired
+    private DailyCashRepository dailyCashRepo;
+    @Autowired
+    private ShopRepository shopRepo;
+
+    @Test
+    void concurrentCallersCreateOneDayPerShop() throws Exception {
+        List<Shop> shops = new ArrayList<>();
+        for (int i = 0; i < SHOPS; i++) {
+            shops.add(shopRepo.save(Shop.builder().code("TEST" + i).name("Test shop " + i).build()));
+        }
+        LocalDate date = LocalDate.of(2024, 3, 15);
+        ExecutorService pool = Executors.newFixedThreadPool(SHOPS * CALLERS_PER_SHOP);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<DailyCash>> results = new ArrayList<>();
+        try {
+            for (Shop shop : shops) {
+                for (int i = 0; i < CALLERS_PER_SHOP; i++) {
+                    Callable<DailyCash> call = () -> {
+                        start.await();
+                        return dailyCashService.getOrCreateDailyCash(shop.getId(), date);
+                    };
+                    results.add(pool.submit(call));
+                }
+            }
+            start.countDown();
+            ConcurrentHashMap<Long, Set<Long>> idsByShop = new ConcurrentHashMap<>();
+            for (Future<DailyCash> result : results) {
+                DailyCash dailyCash = result.get(60, TimeUnit.SECONDS);
+                idsByShop.computeIfAbsent(dailyCash.getShop().getId(), k -> ConcurrentHashMap.newKeySet())
+                        .add(dailyCash.getId());
+            }
+
+            assertEquals(SHOPS, idsByShop.size());
+            for (Shop shop : shops) {
+                assertEquals(1, idsByShop.get(shop.getId()).size(), "every caller gets the same day");
+                assertEquals(1, dailyCashRepo.findLatestByShopId(shop.getId()).size(), "one row per shop");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void contendedShopDoesNotHoldUpOtherShops() throws Exception {
+        Shop busy = shopRepo.save(Shop.builder().code("BUSY").name("Busy shop").build());
+        Shop quiet = shopRepo.save(Shop.builder().code("QUIET").name("Quiet shop").build());
+        LocalDate firstDay = LocalDate.of(2024, 6, 1);
+        ExecutorService pool = Executors.newFixedThreadPool(CONTENDING_THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            // Every contending thread opens the busy shop's days in the same order, so each day is raced for
+            List<Future<?>> contended = new ArrayList<>();
+            for (int t = 0; t < CONTENDING_THREADS; t++) {
+                contended.add(pool.submit(() -> {
+                    start.await();
+                    for (int d = 0; d < CONTENDED_DAYS; d++) {
+                        dailyCashService.getOrCreateDailyCash(busy.getId(), firstDay.plusDays(d));
+                    }
+                    return null;
+                }));
+            }
+            Future<Long> quietRun = pool.submit(() -> {
+                start.await();
+                long slowest = 0;
+                for (int d = 0; d < QUIET_DAYS; d++) {
+                    long begin = System.nanoTime();
+                    dailyCashService.getOrCreateDailyCash(quiet.getId(), firstDay.plusDays(d));
+                    slowest = Math.max(slowest, System.nanoTime() - begin);
+                }
+                return TimeUnit.NANOSECONDS.toMillis(slowest);
+            });
+            long begin = System.nanoTime();
+            start.countDown();
+
+            long slowestQuietMs = quietRun.get(60, TimeUnit.SECONDS);
+            boolean busyStillRunning = contended.stream().anyMatch(f -> !f.isDone());
+            long quietDoneMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            for (Future<?> f : contended) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+            long busyDoneMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            log.info("Quiet shop opened {} days in {} ms (slowest {} ms) while {} threads raced for {} days of another shop ({} ms)",
+                    QUIET_DAYS, quietDoneMs, slowestQuietMs, CONTENDING_THREADS, CONTENDED_DAYS, busyDoneMs);
+
+            assertTrue(busyStillRunning, "the quiet shop finished while the busy shop was still contended");
+            assertEquals(QUIET_DAYS, dailyCashRepo.findLatestByShopId(quiet.getId()).size());
+            assertEquals(CONTENDED_DAYS, dailyCashRepo.findLatestByShopId(busy.getId()).size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
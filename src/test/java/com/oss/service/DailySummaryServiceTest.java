@@ -0,0 +1,129 @@
+package com.oss.service;
+import com.oss.model.DailyCash;
+import com.oss.model.DailySummary;
+import com.oss.model.Role;
+import com.oss.model.Shop;
+import com.oss.model.User;
+import com.oss.repository.DailyCashRepository;
+import com.oss.repository.DailySummaryRepository;
+import com.oss.repository.ShopRepository;
+import com.oss.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class DailySummaryServiceTest {
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        Path dir = Files.createTempDirectory("oss-test");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + dir.resolve("oss.db"));
+    }
+
+    @Autowired
+    private DailySummaryService dailySummaryService;
+    @Autowired
+    private DailySummaryRepository dailySummaryRepo;
+    @Autowired
+    private DailyCashRepository dailyCashRepo;
+    @Autowired
+    private ShopRepository shopRepo;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DailyCashService dailyCashService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void recalculationKeepsSummaryChangedSinceRead() {
+        Shop shop = shopRepo.save(Shop.builder().code("RECALC").name("Recalc shop").build());
+        LocalDate date = LocalDate.of(2024, 5, 10);
+        dailyCashRepo.insertIfAbsent(shop.getId(), date, 100.0);
+        jdbcTemplate.update("UPDATE daily_cash SET locked = 1, closing_cash = 250 WHERE shop_id = ?", shop.getId());
+        dailySummaryService.recalculateSummaries(date, date);
+        DailySummary stored = dailySummaryRepo.findByShop_IdAndBusinessDate(shop.getId(), date).orElseThrow();
+        String key = shop.getId() + ":" + date;
+        Map<String, Long> readVersions = Map.of(key, stored.getCalculatedAt());
+
+        // An expense lands after the recalculation read the day, within the same millisecond or later
+        dailySummaryService.applyDelta(shop.getId(), date, 30.0, 1, 0, 0.0, 0);
+        DailyCash day = dailyCashRepo.findLockedWithShopByBusinessDateBetween(date, date).get(0);
+        DailySummary recomputed = DailySummaryService.computeSummary(day, 0.0, 0, 0, 0.0, 0, 0, 0);
+
+        List<DailySummary> written = dailySummaryService.saveComputedSummaries(List.of(recomputed), readVersions);
+
+        assertEquals(0, written.size());
+        DailySummary after = dailySummaryRepo.findByShop_IdAndBusinessDate(shop.getId(), date).orElseThrow();
+        assertEquals(30.0, after.getTotalExpenses());
+        assertEquals(1, after.getExpenseCount());
+    }
+
+    @Test
+    void deltaReachesSummaryLoadedInSameTransaction() {
+        Shop shop = shopRepo.save(Shop.builder().code("LOADED").name("Loaded shop").build());
+        LocalDate date = LocalDate.of(2024, 6, 3);
+        dailyCashRepo.insertIfAbsent(shop.getId(), date, 100.0);
+        jdbcTemplate.update("UPDATE daily_cash SET locked = 1, closing_cash = 250 WHERE shop_id = ?", shop.getId());
+        dailySummaryService.recalculateSummaries(date, date);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            DailySummary loaded = dailySummaryRepo.findByShop_IdAndBusinessDate(shop.getId(), date).orElseThrow();
+            loaded.setStaffCount(3);
+            dailySummaryService.applyDelta(shop.getId(), date, 30.0, 1, 0, 0.0, 0);
+            // The loaded entity sees the delta, so flushing it at commit cannot write the old totals back
+            assertEquals(30.0, loaded.getTotalExpenses());
+        });
+
+        DailySummary after = dailySummaryRepo.findByShop_IdAndBusinessDate(shop.getId(), date).orElseThrow();
+        assertEquals(30.0, after.getTotalExpenses());
+        assertEquals(1, after.getExpenseCount());
+        assertEquals(3, after.getStaffCount());
+    }
+
+    @Test
+    void openDaysOfShopAreSeededWithoutQueriesPerDay() {
+        Shop shop = shopRepo.save(Shop.builder().code("OPEN").name("Open shop").build());
+        Shop other = shopRepo.save(Shop.builder().code("OTHER").name("Other shop").build());
+        User user = userRepository.save(User.builder()
+                .name("Cashier").email("cashier@test").password("x").role(Role.STAFF).build());
+        LocalDate start = LocalDate.of(2024, 7, 1);
+        int days = 20;
+        for (int i = 0; i < days; i++) {
+            DailyCash day = dailyCashService.getOrCreateDailyCash(shop.getId(), start.plusDays(i));
+            dailyCashService.addExpense(day.getId(), 10.0, null, "Supplies", user);
+        }
+        dailyCashService.getOrCreateDailyCash(other.getId(), start);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<DailySummary> summaries = dailySummaryService.getSummariesByShop(shop.getId(), start, start.plusDays(days - 1));
+
+        assertEquals(days, summaries.size());
+        for (DailySummary summary : summaries) {
+            assertEquals(shop.getId(), summary.getShop().getId());
+            assertEquals(10.0, summary.getTotalExpenses());
+            assertEquals(1, summary.getExpenseCount());
+        }
+        // Stored summaries, open days, then one grouped query each for transactions, credits and attendance
+        assertTrue(statistics.getPrepareStatementCount() <= 5, "open days are seeded with grouped queries");
+    }
+}
@@ -0,0 +1,77 @@
+package com.oss.service;
+import com.oss.model.DailySummary;
+import com.oss.model.MonthlySummary;
+import com.oss.model.Shop;
+import com.oss.repository.MonthlySummaryRepository;
+import com.oss.repository.ShopRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+/**
+ * Days of the same month written at the same moment must all be counted in one month row
+ */
+@SpringBootTest
+class MonthlySummaryServiceTest {
+    private static final int DAYS = 8;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        Path dir = Files.createTempDirectory("oss-test");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + dir.resolve("oss.db"));
+    }
+
+    @Autowired
+    private MonthlySummaryService monthlySummaryService;
+    @Autowired
+    private MonthlySummaryRepository monthlySummaryRepo;
+    @Autowired
+    private ShopRepository shopRepo;
+
+    @Test
+    void concurrentDaysOfOneMonthAreAllCounted() throws Exception {
+        Shop shop = shopRepo.save(Shop.builder().code("MONTH").name("Month shop").build());
+        ExecutorService pool = Executors.newFixedThreadPool(DAYS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < DAYS; i++) {
+                DailySummary day = DailySummary.builder()
+                        .shop(shop)
+                        .businessDate(LocalDate.of(2024, 8, 1 + i))
+                        .totalRevenue(100.0).totalExpenses(40.0).totalCredits(10.0).netSales(90.0).profit(60.0)
+                        .expenseCount(2).creditCount(1).manualSaleCount(0)
+                        .build();
+                results.add(pool.submit(() -> {
+                    start.await();
+                    monthlySummaryService.applyDailyDelta(null, day);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        MonthlySummary month = monthlySummaryRepo.findByShop_IdAndYearAndMonth(shop.getId(), 2024, 8).orElseThrow();
+        assertEquals(DAYS, month.getDayCount());
+        assertEquals(DAYS * 100.0, month.getTotalRevenue());
+        assertEquals(DAYS * 2, month.getExpenseCount());
+        assertEquals(DAYS * 60.0, month.getProfit());
+    }
+}
@@ -0,0 +1,93 @@
+package com.oss.service;
+import com.oss.model.Role;
+import com.oss.model.User;
+import com.oss.repository.PayrollPeriodRepository;
+import com.oss.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/**
+ * The losing closes in concurrentClosesOfOneMonthCloseItOnce are refused the SQLite write lock by design
+ * (SQLITE_BUSY, returned as 409), so Hibernate's logging of that SQL error is turned off here
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF"
+})
+class PayrollServiceTest {
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        Path dir = Files.createTempDirectory("oss-test");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + dir.resolve("oss.db"));
+    }
+
+    @Autowired
+    private PayrollService payrollService;
+    @Autowired
+    private PayrollPeriodRepository payrollPeriodRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void openMonthIsComputedInTwoQueries() {
+        payrollService.runPayroll(2024, 2);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        payrollService.runPayroll(2024, 3);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void concurrentClosesOfOneMonthCloseItOnce() throws Exception {
+        User admin = userRepository.save(User.builder()
+                .name("Payroll admin").email("payroll@test").password("x").role(Role.SUPERADMIN).build());
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return payrollService.closePeriod(2024, 1, admin);
+                }));
+            }
+            start.countDown();
+            int closed = 0;
+            for (Future<?> result : results) {
+                try {
+                    result.get(60, TimeUnit.SECONDS);
+                    closed++;
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof ResponseStatusException, "unexpected " + e.getCause());
+                    assertEquals(HttpStatus.CONFLICT, ((ResponseStatusException) e.getCause()).getStatusCode());
+                }
+            }
+            assertEquals(1, closed);
+            assertTrue(payrollPeriodRepository.existsByYearAndMonth(2024, 1));
+            assertTrue(payrollService.findClosedEntry(admin.getId(), 2024, 1).isPresent());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
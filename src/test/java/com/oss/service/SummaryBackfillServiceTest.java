@@ -0,0 +1,101 @@
+package com.oss.service;
+import com.oss.model.BackfillJobStatus;
+import com.oss.model.DailySummary;
+import com.oss.model.MonthlySummary;
+import com.oss.model.Shop;
+import com.oss.model.SummaryBackfillJob;
+import com.oss.repository.DailyCashRepository;
+import com.oss.repository.DailySummaryRepository;
+import com.oss.repository.MonthlySummaryRepository;
+import com.oss.repository.ShopRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+/**
+ * A backfill job must not overwrite a day whose summary a live write changed after the job read the chunk
+ */
+@SpringBootTest
+class SummaryBackfillServiceTest {
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        Path dir = Files.createTempDirectory("oss-test");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + dir.resolve("oss.db"));
+    }
+
+    @SpyBean
+    private DailySummaryService dailySummaryService;
+    @Autowired
+    private SummaryBackfillService summaryBackfillService;
+    @Autowired
+    private DailySummaryRepository dailySummaryRepo;
+    @Autowired
+    private MonthlySummaryRepository monthlySummaryRepo;
+    @Autowired
+    private DailyCashRepository dailyCashRepo;
+    @Autowired
+    private ShopRepository shopRepo;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void deltaLandingBetweenChunkReadAndWriteIsKept() throws Exception {
+        Shop shop = shopRepo.save(Shop.builder().code("BACKFILL").name("Backfill shop").build());
+        LocalDate start = LocalDate.of(2024, 9, 1);
+        LocalDate end = start.plusDays(2);
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            dailyCashRepo.insertIfAbsent(shop.getId(), date, 100.0);
+        }
+        jdbcTemplate.update("UPDATE daily_cash SET locked = 1, closing_cash = 250 WHERE shop_id = ?", shop.getId());
+        dailySummaryService.recalculateSummaries(start, end);
+        // The backfill has something to correct on every day: the counted cash changed after the summaries were written
+        jdbcTemplate.update("UPDATE daily_cash SET closing_cash = 300 WHERE shop_id = ?", shop.getId());
+
+        LocalDate changedDay = start.plusDays(1);
+        AtomicBoolean deltaLanded = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (deltaLanded.compareAndSet(false, true)) {
+                // A live expense commits on its own thread after the chunk was read and before it is written
+                CompletableFuture.runAsync(() -> dailySummaryService.applyDelta(shop.getId(), changedDay, 30.0, 1, 0, 0.0, 0))
+                        .get(30, TimeUnit.SECONDS);
+            }
+            return invocation.callRealMethod();
+        }).when(dailySummaryService).saveComputedSummaries(anyList(), anyMap());
+
+        SummaryBackfillJob job = summaryBackfillService.start(start, end, 31);
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (job.getStatus() == BackfillJobStatus.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            job = summaryBackfillService.getJob(job.getId());
+        }
+
+        assertEquals(BackfillJobStatus.COMPLETED, job.getStatus());
+        assertEquals(2, job.getSummariesWritten());
+        DailySummary changed = dailySummaryRepo.findByShop_IdAndBusinessDate(shop.getId(), changedDay).orElseThrow();
+        assertEquals(30.0, changed.getTotalExpenses());
+        assertEquals(1, changed.getExpenseCount());
+        assertEquals(150.0 + 30.0, changed.getTotalRevenue());
+        for (LocalDate date : new LocalDate[]{start, end}) {
+            DailySummary recalculated = dailySummaryRepo.findByShop_IdAndBusinessDate(shop.getId(), date).orElseThrow();
+            assertEquals(200.0, recalculated.getTotalRevenue());
+        }
+        // The month holds the delta and both recalculated days
+        MonthlySummary month = monthlySummaryRepo.findByShop_IdAndYearAndMonth(shop.getId(), 2024, 9).orElseThrow();
+        assertEquals(30.0, month.getTotalExpenses());
+        assertEquals(200.0 + 180.0 + 200.0, month.getTotalRevenue());
+        assertEquals(3, month.getDayCount());
+    }
+}